@@ -0,0 +1,18 @@
+package interfaces;
+
+import model.TaskEvent;
+
+import java.util.List;
+
+public interface TaskListener {
+
+    // События приходят в порядке изменений; пачка — все события одной транзакции
+    // или то, что накопилось в очереди асинхронного подписчика
+    void onEvents(List<TaskEvent> events);
+
+    interface Subscription extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
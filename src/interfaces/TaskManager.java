@@ -1,10 +1,14 @@
 package interfaces;
 
 import model.Epic;
+import model.Status;
 import model.Subtask;
 import model.Task;
+import model.TaskType;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TaskManager {
     List<Task> getAllTasks();
@@ -25,6 +29,11 @@ public interface TaskManager {
 
     Subtask getSubtaskById(int id);
 
+    // Поиск сущности любого типа без записи в историю
+    Task findById(int id);
+
+    TaskType getTypeById(int id);
+
     void createTask(Task task);
 
     void createEpic(Epic epic);
@@ -47,5 +56,36 @@ public interface TaskManager {
 
     void updateEpicStatus(Epic epic);
 
+    // Пакетные операции: пакет проверяется целиком и применяется полностью или не применяется вовсе
+    void createAll(List<? extends Task> items);
+
+    void updateAll(List<? extends Task> items);
+
+    void deleteAll(List<Integer> ids);
+
+    void scheduleEarliest(Task task, LocalDateTime notBefore, LocalDateTime notAfter);
+
+    void scheduleAll(List<? extends Task> items, LocalDateTime notBefore, LocalDateTime notAfter);
+
+    // Изменения внутри work применяются все вместе или не применяются вовсе
+    void inTransaction(Consumer<TaskManager> work);
+
+    TaskListener.Subscription subscribe(TaskListener listener);
+
+    TaskListener.Subscription subscribeAsync(TaskListener listener, int capacity, int maxBatch);
+
+    // Страница в порядке id: не больше limit записей с id больше after
+    List<Task> getTasksPage(int after, int limit);
+
+    List<Epic> getEpicsPage(int after, int limit);
+
+    List<Subtask> getSubtasksPage(int after, int limit);
+
+    // Фильтр по типу, статусу и эпику; null в параметре означает «любой»
+    List<Task> query(TaskType type, Status status, Integer epicId);
+
+    // Полнотекстовый поиск по названию и описанию, сначала самые релевантные
+    List<Task> search(String query, int limit);
+
     List<Task> getHistory();
 }
@@ -1,13 +1,39 @@
 package model;
 
+import storage.IntIdList;
+import storage.IntObjectMap;
+
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeMap;
 
 
 public class Epic extends Task {
-    private List<Integer> subtasksId = new ArrayList<>();
+    private List<Integer> subtasksId = new IntIdList();
+    private LocalDateTime endTime;
+    // Накопленные по подзадачам агрегаты: число подзадач в каждом статусе, сумма длительностей,
+    // мультимножества начал и концов (крайние значения удаляются за O(log k)) и значения, с которыми
+    // учтена каждая подзадача. Поля transient и создаются лениво: Gson создаёт объекты без конструктора
+    private transient IntObjectMap<Counted> counted;
+    private transient int[] statusCounts;
+    private transient Duration totalDuration;
+    private transient TreeMap<LocalDateTime, Integer> starts;
+    private transient TreeMap<LocalDateTime, Integer> ends;
+
+    private static final class Counted {
+        final Status status;
+        final Duration duration;
+        final LocalDateTime start;
+        final LocalDateTime end;
+
+        Counted(Subtask subtask) {
+            this.status = subtask.getStatus();
+            this.duration = subtask.getDuration() != null ? subtask.getDuration() : Duration.ZERO;
+            this.start = subtask.getStartTime();
+            this.end = subtask.getEndTime();
+        }
+    }
 
     public Epic(String name, String description) {
         super(name, description);
@@ -21,40 +47,120 @@ public class Epic extends Task {
         return subtasksId;
     }
 
+    // Любой список приводится к IntIdList, чтобы удаление и поиск подзадачи оставались O(1)
     public void setSubtasksId(List<Integer> subtasksId) {
-        this.subtasksId = subtasksId;
+        if (subtasksId == null) {
+            this.subtasksId = new IntIdList();
+        } else {
+            this.subtasksId = subtasksId instanceof IntIdList ? subtasksId : new IntIdList(subtasksId);
+        }
+        resetCounters();
+    }
+
+    @Override
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
     }
 
+    // Полный пересчёт времени и длительности по переданным подзадачам
     public void updateTimeAndDuration(List<Subtask> subtasks) {
-        if (subtasks.isEmpty()) {
-            setDuration(Duration.ZERO);
-            setStartTime(null);
-            return;
+        recountSubtasks(subtasks);
+    }
+
+    public boolean hasCounters() {
+        return counted != null;
+    }
+
+    public void resetCounters() {
+        counted = null;
+        statusCounts = null;
+        totalDuration = null;
+        starts = null;
+        ends = null;
+    }
+
+    public void recountSubtasks(List<Subtask> subtasks) {
+        counted = new IntObjectMap<>(subtasks.size());
+        statusCounts = new int[Status.values().length];
+        totalDuration = Duration.ZERO;
+        starts = new TreeMap<>();
+        ends = new TreeMap<>();
+
+        for (Subtask subtask : subtasks) {
+            add(subtask.getId(), new Counted(subtask));
         }
+        applyTime();
+    }
 
-        Duration totalDuration = Duration.ZERO;
-        LocalDateTime earliestStart = null;
-        LocalDateTime latestEnd = null;
-
-        for (Subtask s : subtasks) {
-            if (s.getStartTime() != null) {
-                if (earliestStart == null || s.getStartTime().isBefore(earliestStart)) {
-                    earliestStart = s.getStartTime();
-                }
-
-                LocalDateTime taskEnd = s.getEndTime();
-                if (taskEnd != null && (latestEnd == null || taskEnd.isAfter(latestEnd))) {
-                    latestEnd = taskEnd;
-                }
-            }
-
-            totalDuration = totalDuration.plus(
-                    s.getDuration() != null ? s.getDuration() : Duration.ZERO
-            );
+    // Учитывает подзадачу в текущем состоянии, снимая значения, с которыми она была учтена раньше
+    public void trackSubtask(Subtask subtask) {
+        Counted previous = counted.get(subtask.getId());
+        if (previous != null) {
+            subtract(previous);
         }
+        add(subtask.getId(), new Counted(subtask));
+        applyTime();
+    }
+
+    public void untrackSubtask(int id) {
+        Counted previous = counted.remove(id);
+        if (previous == null) return;
 
+        subtract(previous);
+        applyTime();
+    }
+
+    public boolean isTracking(int id) {
+        return counted.containsKey(id);
+    }
+
+    public int getStatusCount(Status status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    public Status statusFromCounts() {
+        int total = counted.size();
+
+        if (statusCounts[Status.NEW.ordinal()] == total) return Status.NEW;
+        if (statusCounts[Status.DONE.ordinal()] == total) return Status.DONE;
+
+        return Status.IN_PROGRESS;
+    }
+
+    private void add(int id, Counted value) {
+        counted.put(id, value);
+        statusCounts[bucket(value.status)]++;
+        totalDuration = totalDuration.plus(value.duration);
+
+        if (value.start != null) {
+            starts.merge(value.start, 1, Integer::sum);
+            ends.merge(value.end, 1, Integer::sum);
+        }
+    }
+
+    private void subtract(Counted value) {
+        statusCounts[bucket(value.status)]--;
+        totalDuration = totalDuration.minus(value.duration);
+
+        if (value.start != null) {
+            starts.computeIfPresent(value.start, (time, count) -> count > 1 ? count - 1 : null);
+            ends.computeIfPresent(value.end, (time, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private void applyTime() {
         setDuration(totalDuration);
-        setStartTime(earliestStart);
+        setStartTime(starts.isEmpty() ? null : starts.firstKey());
+        endTime = ends.isEmpty() ? null : ends.lastKey();
+    }
+
+    // Подзадача без статуса не считается ни новой, ни завершённой
+    private static int bucket(Status status) {
+        return status != null ? status.ordinal() : Status.IN_PROGRESS.ordinal();
     }
 
     @Override
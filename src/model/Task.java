@@ -3,6 +3,7 @@ package model;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public class Task {
     private String name;
@@ -11,6 +12,7 @@ public class Task {
     private Status status;
     private Duration duration;
     private LocalDateTime startTime;
+    private transient Supplier<String> descriptionLoader;
 
 
     public Task(String name, String description) {
@@ -62,11 +64,37 @@ public class Task {
     }
 
     public String getDescription() {
+        if (description == null && descriptionLoader != null) {
+            return descriptionLoader.get();
+        }
+
         return description;
     }
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionLoader = null;
+    }
+
+    public void setDescriptionLoader(Supplier<String> descriptionLoader) {
+        this.descriptionLoader = descriptionLoader;
+        this.description = null;
+    }
+
+    public boolean isDescriptionLoaded() {
+        return descriptionLoader == null || description != null;
+    }
+
+    public void loadDescription() {
+        if (description == null && descriptionLoader != null) {
+            description = descriptionLoader.get();
+        }
+    }
+
+    public void unloadDescription() {
+        if (descriptionLoader != null) {
+            description = null;
+        }
     }
 
     public Duration getDuration() {
@@ -0,0 +1,56 @@
+package model;
+
+// Изменение одной записи. before и after — копии состояния до и после изменения,
+// поэтому событие можно хранить и обрабатывать в другом потоке.
+// CREATED: before == null, DELETED: after == null, STATUS_CHANGED — пересчитанный статус эпика
+public class TaskEvent {
+    public enum Kind {
+        CREATED,
+        UPDATED,
+        DELETED,
+        STATUS_CHANGED
+    }
+
+    private final Kind kind;
+    private final Task before;
+    private final Task after;
+
+    public TaskEvent(Kind kind, Task before, Task after) {
+        if (kind == null || (before == null && after == null)) {
+            throw new IllegalArgumentException("Передан null объект");
+        }
+
+        this.kind = kind;
+        this.before = before;
+        this.after = after;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public TaskType getType() {
+        return after != null ? after.getType() : before.getType();
+    }
+
+    public int getId() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    public Task getBefore() {
+        return before;
+    }
+
+    public Task getAfter() {
+        return after;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEvent{" +
+                "kind=" + kind +
+                ", type=" + getType() +
+                ", id=" + getId() +
+                '}';
+    }
+}
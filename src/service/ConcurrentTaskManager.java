@@ -0,0 +1,411 @@
+package service;
+
+import interfaces.TaskListener;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Status;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Потокобезопасная обёртка над любым TaskManager. Изменения выполняются под блокировкой записи,
+// поэтому выдача id и пересчёт статуса и времени эпика атомарны относительно других писателей.
+// Чтения идут параллельно под блокировкой чтения; getXById дополнительно меняет историю,
+// поэтому такие вызовы сериализуются между собой отдельным монитором истории.
+// Чтения возвращают копии, снятые под блокировкой: хранимые объекты меняются писателями,
+// и вызывающий (например, сериализация ответа HTTP) не должен читать их вне блокировки.
+public class ConcurrentTaskManager implements TaskManager {
+    private final TaskManager delegate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object historyLock = new Object();
+
+    public ConcurrentTaskManager(TaskManager delegate) {
+        if (delegate == null) throw new IllegalArgumentException("Передан null объект");
+
+        this.delegate = delegate;
+    }
+
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    private static <T extends Task> T copy(T task) {
+        return task != null ? InMemoryTaskManager.copyOf(task) : null;
+    }
+
+    private static <T extends Task> List<T> copies(List<T> items) {
+        List<T> result = new ArrayList<>(items.size());
+        for (T item : items) {
+            result.add(InMemoryTaskManager.copyOf(item));
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.getAllTasks());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.getAllEpics());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.getAllSubtasks());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        lock.writeLock().lock();
+        try {
+            delegate.deleteAllTasks();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        lock.writeLock().lock();
+        try {
+            delegate.deleteAllEpics();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        lock.writeLock().lock();
+        try {
+            delegate.deleteAllSubtasks();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void createAll(List<? extends Task> items) {
+        lock.writeLock().lock();
+        try {
+            delegate.createAll(items);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> items) {
+        lock.writeLock().lock();
+        try {
+            delegate.updateAll(items);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            delegate.deleteAll(ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void scheduleEarliest(Task task, LocalDateTime notBefore, LocalDateTime notAfter) {
+        lock.writeLock().lock();
+        try {
+            delegate.scheduleEarliest(task, notBefore, notAfter);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void scheduleAll(List<? extends Task> items, LocalDateTime notBefore, LocalDateTime notAfter) {
+        lock.writeLock().lock();
+        try {
+            delegate.scheduleAll(items, notBefore, notAfter);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Подписка не берёт блокировку: синхронные подписчики вызываются под блокировкой записи изменения
+    @Override
+    public TaskListener.Subscription subscribe(TaskListener listener) {
+        return delegate.subscribe(listener);
+    }
+
+    @Override
+    public TaskListener.Subscription subscribeAsync(TaskListener listener, int capacity, int maxBatch) {
+        return delegate.subscribeAsync(listener, capacity, maxBatch);
+    }
+
+    // Транзакция целиком выполняется под блокировкой записи: читатели не видят её промежуточных состояний
+    @Override
+    public void inTransaction(Consumer<TaskManager> work) {
+        lock.writeLock().lock();
+        try {
+            delegate.inTransaction(work);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        lock.readLock().lock();
+        try {
+            synchronized (historyLock) {
+                return copy(delegate.getTaskById(id));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        lock.readLock().lock();
+        try {
+            synchronized (historyLock) {
+                return copy(delegate.getEpicById(id));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        lock.readLock().lock();
+        try {
+            synchronized (historyLock) {
+                return copy(delegate.getSubtaskById(id));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Task findById(int id) {
+        lock.readLock().lock();
+        try {
+            return copy(delegate.findById(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TaskType getTypeById(int id) {
+        lock.readLock().lock();
+        try {
+            return delegate.getTypeById(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void createTask(Task task) {
+        lock.writeLock().lock();
+        try {
+            delegate.createTask(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        lock.writeLock().lock();
+        try {
+            delegate.createEpic(epic);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        lock.writeLock().lock();
+        try {
+            delegate.createSubtask(subtask);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        lock.writeLock().lock();
+        try {
+            delegate.updateTask(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        lock.writeLock().lock();
+        try {
+            delegate.updateEpic(epic);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        lock.writeLock().lock();
+        try {
+            delegate.updateSubtask(subtask);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        lock.writeLock().lock();
+        try {
+            delegate.deleteTaskById(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        lock.writeLock().lock();
+        try {
+            delegate.deleteEpicById(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        lock.writeLock().lock();
+        try {
+            delegate.deleteSubtaskById(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtaskByEpicId(int id) {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.getSubtaskByEpicId(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        lock.writeLock().lock();
+        try {
+            delegate.updateEpicStatus(epic);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getTasksPage(int after, int limit) {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.getTasksPage(after, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int after, int limit) {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.getEpicsPage(after, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int after, int limit) {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.getSubtasksPage(after, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Task> query(TaskType type, Status status, Integer epicId) {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.query(type, status, epicId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return copies(delegate.search(query, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        lock.readLock().lock();
+        try {
+            synchronized (historyLock) {
+                return copies(delegate.getHistory());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package service;
+
+import interfaces.TaskListener;
+import model.TaskEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Рассылка событий подписчикам. Синхронный подписчик вызывается в потоке изменения, асинхронный получает
+// события через ограниченную очередь из отдельного потока пачками до maxBatch. Заполненная очередь
+// задерживает изменения, пока подписчик не разберёт её: события не теряются, а память ограничена.
+// Исключение подписчика не отменяет уже применённое изменение и учитывается в счётчике ошибок
+public class EventBus {
+    private static final long POLL_MILLIS = 100;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong failures = new AtomicLong();
+
+    private abstract class Subscriber implements TaskListener.Subscription {
+        final TaskListener listener;
+
+        Subscriber(TaskListener listener) {
+            if (listener == null) throw new IllegalArgumentException("Передан null объект");
+            this.listener = listener;
+        }
+
+        abstract void deliver(List<TaskEvent> events);
+
+        void notifyListener(List<TaskEvent> events) {
+            try {
+                listener.onEvents(events);
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() {
+            subscribers.remove(this);
+        }
+    }
+
+    private final class SyncSubscriber extends Subscriber {
+
+        SyncSubscriber(TaskListener listener) {
+            super(listener);
+        }
+
+        @Override
+        void deliver(List<TaskEvent> events) {
+            notifyListener(events);
+        }
+    }
+
+    private final class AsyncSubscriber extends Subscriber {
+        private final BlockingQueue<TaskEvent> queue;
+        private final int maxBatch;
+        private final Thread worker;
+        private volatile boolean closed;
+
+        AsyncSubscriber(TaskListener listener, int capacity, int maxBatch) {
+            super(listener);
+            if (capacity <= 0 || maxBatch <= 0) {
+                throw new IllegalArgumentException("Размер очереди и пачки должен быть положительным");
+            }
+
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.maxBatch = maxBatch;
+            this.worker = new Thread(this::run, "task-events");
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        // После закрытия поток-обработчик уже не разбирает очередь, поэтому опоздавший публикатор,
+        // взявший список подписчиков до отписки, не должен ждать места в ней
+        @Override
+        void deliver(List<TaskEvent> events) {
+            try {
+                for (TaskEvent event : events) {
+                    while (!queue.offer(event, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (closed || !worker.isAlive()) return;
+                    }
+                    if (closed) return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            List<TaskEvent> batch = new ArrayList<>(maxBatch);
+            try {
+                while (!closed || !queue.isEmpty()) {
+                    TaskEvent first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                    try {
+                        notifyListener(List.copyOf(batch));
+                    } catch (Throwable e) {
+                        // Error подписчика не должен останавливать поток: иначе очередь заполнится навсегда
+                        failures.incrementAndGet();
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Новые события перестают поступать, уже поставленные в очередь доставляются до конца
+        @Override
+        public void close() {
+            super.close();
+            closed = true;
+            if (Thread.currentThread() == worker) return;
+
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public TaskListener.Subscription subscribe(TaskListener listener) {
+        Subscriber subscriber = new SyncSubscriber(listener);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    public TaskListener.Subscription subscribeAsync(TaskListener listener, int capacity, int maxBatch) {
+        Subscriber subscriber = new AsyncSubscriber(listener, capacity, maxBatch);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    // Проверяется до построения событий, чтобы без подписчиков изменения не копировали записи
+    public boolean hasListeners() {
+        return !subscribers.isEmpty();
+    }
+
+    public void publish(List<TaskEvent> events) {
+        if (events.isEmpty()) return;
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.deliver(events);
+        }
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+}
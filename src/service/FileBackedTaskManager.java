@@ -1,222 +1,1033 @@
 package service;
 
 import exception.ManagerSaveException;
+import interfaces.TaskManager;
 import model.*;
+import storage.BinarySnapshotCodec;
+import storage.CsvTaskCodec;
+import storage.Durability;
+import storage.JournalCompactor;
+import storage.ParallelLineParser;
+import storage.SlotRecordFile;
+import storage.TaskJournal;
 
 import java.io.*;
-import java.time.Duration;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements Closeable {
     private final File file;
+    private final PersistenceMode mode;
+    private final SnapshotFormat format;
+    private final TaskJournal journal;
+    private final JournalCompactor compactor;
+    private final SlotRecordFile slots;
+    private Durability durability = Durability.NONE;
+
+    public static final long PARALLEL_LOAD_THRESHOLD = 8 * 1024 * 1024;
+    public static final long DEFAULT_MAX_LAG_MILLIS = 50;
+    public static final int DEFAULT_MAX_DIRTY = 10_000;
+
+    private final CsvTaskCodec codec = new CsvTaskCodec();
+    private final StringBuilder recordBuilder = new StringBuilder();
+    private final Map<Integer, TaskType> dirty = new HashMap<>();
+    private final Set<TaskType> cleared = EnumSet.noneOf(TaskType.class);
+    private ScheduledExecutorService writeBehindExecutor;
+    private long maxLagMillis = DEFAULT_MAX_LAG_MILLIS;
+    private int maxDirty = DEFAULT_MAX_DIRTY;
+    private Map<Integer, Task> hydrated;
+    private LoadReport loadReport;
+    // Изменения открытой транзакции: id и очищенные типы, которые будут сохранены при фиксации
+    private Map<Integer, TaskType> pendingIds;
+    private Set<TaskType> pendingClears;
+
+    private enum Operation {
+        PUT,
+        REMOVE,
+        CLEAR
+    }
 
     public FileBackedTaskManager(File file) {
+        this(file, PersistenceMode.SNAPSHOT);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode) {
+        this(file, mode, SnapshotFormat.CSV);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode, SnapshotFormat format) {
         this.file = file;
+        this.mode = mode;
+        this.format = format;
+        this.journal = mode == PersistenceMode.JOURNAL || mode == PersistenceMode.WRITE_BEHIND
+                ? new TaskJournal(journalFile(file)) : null;
+        this.compactor = journal != null ? new JournalCompactor() : null;
+        this.slots = mode == PersistenceMode.SLOTTED ? openSlots(file) : null;
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        return loadFromFile(file, PersistenceMode.SNAPSHOT);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode) {
+        return loadFromFile(file, mode, SnapshotFormat.CSV);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode, SnapshotFormat format) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, mode, format);
+        long started = System.nanoTime();
+
+        if (manager.journal != null) {
+            if (file.exists()) manager.load();
+            manager.replayJournal();
+        } else {
+            manager.load();
+        }
+
+        manager.rebuildIndexes(System.nanoTime() - started);
+        if (manager.journal != null && manager.journal.hasRotated()) manager.save();
+
+        return manager;
+    }
+
+    // Описания загружаются с диска при первом обращении; полностью загруженными остаются
+    // только последние descriptionCacheSize задач, полученных через getXById
+    public static FileBackedTaskManager loadWithLazyDescriptions(File file, int descriptionCacheSize) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.SLOTTED);
+        manager.slots.setLazyDescriptions(true);
+        manager.hydrated = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Task> eldest) {
+                if (size() <= descriptionCacheSize) return false;
+
+                eldest.getValue().unloadDescription();
+                return true;
+            }
+        };
+        long started = System.nanoTime();
         manager.load();
+        manager.rebuildIndexes(System.nanoTime() - started);
 
         return manager;
     }
 
+    private static SlotRecordFile openSlots(File file) {
+        try {
+            return new SlotRecordFile(file);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка открытия файла слотов");
+        }
+    }
+
+    public static void convertSnapshot(File source, File target, SnapshotFormat targetFormat) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(source);
+        manager.load();
+
+        new FileBackedTaskManager(target, PersistenceMode.SNAPSHOT, targetFormat).writeSnapshot(manager.snapshotImage());
+    }
+
+    public static File journalFile(File file) {
+        return new File(file.getPath() + ".journal");
+    }
+
+    public PersistenceMode getMode() {
+        return mode;
+    }
+
+    public SnapshotFormat getFormat() {
+        return format;
+    }
+
+    public LoadReport getLoadReport() {
+        return loadReport;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setDurability(Durability durability) {
+        setDurability(durability, TaskJournal.DEFAULT_BATCH_MILLIS, TaskJournal.DEFAULT_BATCH_RECORDS);
+    }
+
+    public void setDurability(Durability durability, long batchMillis, int batchRecords) {
+        this.durability = durability;
+
+        if (journal != null) {
+            journal.setDurability(durability, batchMillis, batchRecords);
+        }
+    }
+
+    public synchronized void setWriteBehind(long maxLagMillis, int maxDirty) {
+        if (mode != PersistenceMode.WRITE_BEHIND) return;
+
+        this.maxLagMillis = maxLagMillis;
+        this.maxDirty = maxDirty;
+
+        if (writeBehindExecutor != null) {
+            writeBehindExecutor.shutdown();
+            writeBehindExecutor = null;
+            startWriteBehind();
+        }
+    }
+
+    // Поток сброса запускается при первом изменении, а не в конструкторе, чтобы ссылка
+    // на не до конца созданный менеджер не попала в другой поток
+    private void startWriteBehind() {
+        if (writeBehindExecutor != null) return;
+
+        writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writeBehindExecutor.scheduleWithFixedDelay(this::flushDirtyQuietly, maxLagMillis, maxLagMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public int getForceCount() {
+        return journal != null ? journal.getForceCount() : 0;
+    }
+
+    public synchronized int getDirtyCount() {
+        return dirty.size() + cleared.size();
+    }
+
+    public void flush() {
+        if (slots != null) {
+            forceSlots();
+            return;
+        }
+
+        if (journal == null) return;
+
+        synchronized (this) {
+            flushDirty();
+        }
+
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сброса журнала на диск");
+        }
+    }
+
+    public void setCompactionThresholds(long maxJournalBytes, int maxJournalRecords) {
+        if (compactor != null) {
+            compactor.setThresholds(maxJournalBytes, maxJournalRecords);
+        }
+    }
+
+    // Бросает ManagerSaveException, если фоновая компакция с прошлой проверки завершилась ошибкой;
+    // журнал при этом не теряется: повёрнутая часть остаётся на диске до успешного снимка
+    public void awaitCompaction() {
+        if (compactor != null) {
+            compactor.awaitIdle();
+            rethrowCompactionError();
+        }
+    }
+
+    private void rethrowCompactionError() {
+        Exception error = compactor.takeError();
+        if (error != null) throw new ManagerSaveException("Ошибка фоновой компакции журнала", error);
+    }
+
     private void load() {
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            br.readLine();
-            String line;
-
-            while ((line = br.readLine()) != null && !line.isEmpty()) {
-                Task task = fromString(line);
-                int id = task.getId();
-
-                if (id >= nextId) {
-                    nextId = id + 1;
-                }
-
-                switch (task.getType()) {
-                    case EPIC:
-                        epics.put(id, (Epic) task);
-                        break;
-                    case SUBTASK:
-                        Subtask subtask = (Subtask) task;
-                        subtasks.put(id, subtask);
-                        Epic epic = epics.get(subtask.getEpicId());
-                        if (epic != null) {
-                            epic.getSubtasksId().add(id);
-                        }
-                        break;
-                    case TASK:
-                        tasks.put(id, task);
-                        break;
-                }
+        try {
+            if (slots != null) {
+                slots.readAll(this::restore);
+            } else if (BinarySnapshotCodec.isBinary(file)) {
+                BinarySnapshotCodec.read(file, this::restore);
+            } else if (file.length() >= PARALLEL_LOAD_THRESHOLD) {
+                loadChunked();
+            } else {
+                loadSequential();
             }
         } catch (Exception e) {
             throw new ManagerSaveException("Ошибка загрузки из файла");
         }
     }
 
-    protected void save() {
-        try (Writer writer = new FileWriter(file)) {
-            writer.write("id,type,name,status,description,epic,duration,startTime\n");
+    private void loadSequential() throws IOException {
+        try (Reader reader = new FileReader(file)) {
+            codec.readAll(reader, this::restore);
+        }
+    }
+
+    private void loadChunked() throws IOException {
+        ThreadLocal<CsvTaskCodec> codecs = ThreadLocal.withInitial(CsvTaskCodec::new);
+        ParallelLineParser<Task> parser = new ParallelLineParser<>(
+                (text, start, end) -> codecs.get().decode(text, start, end), Charset.defaultCharset(),
+                ParallelLineParser.chunkSizeFor(file.length()));
 
-            for (Task task : getAllTasks()) {
-                writer.write(toString(task) + "\n");
+        for (Task task : parser.parse(file)) {
+            restore(task);
+        }
+    }
+
+    // Связи подзадач с эпиками восстанавливаются отдельным проходом, поэтому порядок строк в файле не важен
+    private void relinkSubtasks() {
+        for (Epic epic : epics.values()) {
+            epic.getSubtasksId().clear();
+            epic.resetCounters();
+        }
+
+        for (Subtask subtask : subtasks.values()) {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.getSubtasksId().add(subtask.getId());
             }
+        }
+    }
+
+    private void replayJournal() {
+        try {
+            journal.replay(this::applyRecord);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала");
+        }
+    }
+
+    // После чтения все производные индексы строятся за один проход: связи эпиков, временная шкала,
+    // время и статус эпиков (эпики независимы друг от друга, поэтому пересчитываются параллельно)
+    private void rebuildIndexes(long readNanos) {
+        long started = System.nanoTime();
+        relinkSubtasks();
+        long linked = System.nanoTime();
+        rebuildTimeline();
+        long indexed = System.nanoTime();
+        epics.values().parallelStream().forEach(this::deriveEpicStatus);
+        rebuildSecondaryIndexes();
+        long aggregated = System.nanoTime();
+
+        loadReport = new LoadReport(tasks.size() + epics.size() + subtasks.size(), readNanos,
+                linked - started, indexed - linked, aggregated - indexed);
+    }
 
-            for (Epic epic : getAllEpics()) {
-                writer.write(toString(epic) + "\n");
+    private void applyRecord(String record) {
+        try {
+            int comma = record.indexOf(',');
+            String payload = record.substring(comma + 1);
+
+            switch (Operation.valueOf(record.substring(0, comma))) {
+                case PUT:
+                    restore(codec.decode(payload));
+                    break;
+                case REMOVE:
+                    int idComma = payload.indexOf(',');
+                    forget(TaskType.valueOf(payload.substring(0, idComma)),
+                            Integer.parseInt(payload.substring(idComma + 1)));
+                    break;
+                case CLEAR:
+                    clear(TaskType.valueOf(payload));
+                    break;
             }
+        } catch (RuntimeException e) {
+            // Оборванный хвост журнала отрезается ещё при чтении, так что сюда попадает только порча
+            throw new ManagerSaveException("Повреждённая запись журнала: " + record);
+        }
+    }
+
+    private void restore(Task task) {
+        int id = task.getId();
 
-            for (Subtask subtask : getAllSubtasks()) {
-                writer.write(toString(subtask) + "\n");
+        if (id >= nextId) {
+            nextId = id + 1;
+        }
+
+        switch (task.getType()) {
+            case EPIC:
+                Epic epic = (Epic) task;
+                Epic previous = epics.put(id, epic);
+                if (previous != null) {
+                    epic.setSubtasksId(previous.getSubtasksId());
+                }
+                break;
+            case SUBTASK:
+                Subtask subtask = (Subtask) task;
+                Subtask old = subtasks.put(id, subtask);
+                if (old != null && epics.containsKey(old.getEpicId())) {
+                    epics.get(old.getEpicId()).getSubtasksId().remove((Integer) id);
+                }
+                Epic parent = epics.get(subtask.getEpicId());
+                if (parent != null) {
+                    parent.getSubtasksId().add(id);
+                }
+                break;
+            case TASK:
+                tasks.put(id, task);
+                break;
+        }
+    }
+
+    private void forget(TaskType type, int id) {
+        switch (type) {
+            case TASK:
+                tasks.remove(id);
+                break;
+            case EPIC:
+                Epic epic = epics.remove(id);
+                if (epic != null) {
+                    for (Integer sId : epic.getSubtasksId()) {
+                        subtasks.remove(sId);
+                    }
+                }
+                break;
+            case SUBTASK:
+                Subtask subtask = subtasks.remove(id);
+                if (subtask != null && epics.containsKey(subtask.getEpicId())) {
+                    epics.get(subtask.getEpicId()).getSubtasksId().remove((Integer) id);
+                }
+                break;
+        }
+    }
+
+    private void clear(TaskType type) {
+        switch (type) {
+            case TASK:
+                tasks.clear();
+                break;
+            case EPIC:
+                epics.clear();
+                subtasks.clear();
+                break;
+            case SUBTASK:
+                subtasks.clear();
+                for (Epic epic : epics.values()) {
+                    epic.getSubtasksId().clear();
+                }
+                break;
+        }
+    }
+
+    protected synchronized void save() {
+        if (slots != null) {
+            forceSlots();
+            return;
+        }
+
+        if (journal == null) {
+            writeSnapshot(snapshotImage());
+            return;
+        }
+
+        dirty.clear();
+        cleared.clear();
+        compactor.awaitIdle();
+        writeSnapshot(snapshotImage());
+        // Полный снимок заменяет и недописанный фоновой компакцией
+        compactor.takeError();
+
+        try {
+            journal.truncate();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка очистки журнала");
+        }
+    }
+
+    // Вызывается и извне, поэтому, как и изменения, идёт под монитором менеджера: снимок не должен
+    // читать таблицы во время записи, а ротация журнала — идти параллельно с дописыванием
+    public synchronized void compact() {
+        if (journal == null || !compactor.start()) return;
+
+        List<Task> image = snapshotImage();
+
+        try {
+            journal.rotate();
+        } catch (IOException e) {
+            compactor.abort();
+            throw new ManagerSaveException("Ошибка ротации журнала");
+        }
+
+        compactor.submit(() -> {
+            writeSnapshot(image);
+            journal.discardRotated();
+        });
+    }
+
+    private List<Task> snapshotImage() {
+        List<Task> image = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        image.addAll(tasks.values());
+        image.addAll(epics.values());
+        image.addAll(subtasks.values());
+
+        return image;
+    }
+
+    private void writeSnapshot(List<Task> image) {
+        File tmp = new File(file.getPath() + ".tmp");
+
+        if (format == SnapshotFormat.BINARY) {
+            try {
+                new BinarySnapshotCodec().write(tmp, image, durability != Durability.NONE);
+            } catch (Exception e) {
+                throw new ManagerSaveException("Ошибка сохранения в файл");
             }
-        } catch (Exception e) {
+        } else {
+            try (FileOutputStream out = new FileOutputStream(tmp);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(out))) {
+                CsvTaskCodec snapshotCodec = new CsvTaskCodec();
+                StringBuilder line = new StringBuilder(256);
+                writer.write(CsvTaskCodec.HEADER);
+                writer.write('\n');
+
+                for (Task task : image) {
+                    line.setLength(0);
+                    snapshotCodec.encode(task, line);
+                    line.append('\n');
+                    writer.append(line);
+                }
+
+                if (durability != Durability.NONE) {
+                    writer.flush();
+                    out.getFD().sync();
+                }
+            } catch (Exception e) {
+                throw new ManagerSaveException("Ошибка сохранения в файл");
+            }
+        }
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
             throw new ManagerSaveException("Ошибка сохранения в файл");
         }
     }
 
-    private String toString(Task task) {
-        String epicId = "";
-        String duration = "";
-        String startTime = "";
+    private boolean defer(int id, TaskType type) {
+        if (pendingIds == null) return false;
 
-        if (task.getType() == TaskType.SUBTASK) {
-            epicId = String.valueOf(((Subtask) task).getEpicId());
+        pendingIds.put(id, type);
+        return true;
+    }
+
+    private void persistPut(Task task) {
+        if (defer(task.getId(), task.getType())) return;
+
+        switch (mode) {
+            case SNAPSHOT:
+                save();
+                break;
+            case JOURNAL:
+                appendPut(task);
+                break;
+            case WRITE_BEHIND:
+                markDirty(task.getId(), task.getType());
+                break;
+            case SLOTTED:
+                writeSlot(task);
+                if (task.getType() == TaskType.SUBTASK && epics.containsKey(((Subtask) task).getEpicId())) {
+                    writeSlot(epics.get(((Subtask) task).getEpicId()));
+                }
+                break;
         }
+    }
+
+    private void persistRemove(TaskType type, int id) {
+        if (defer(id, type)) return;
 
-        if (task.getDuration() != null) {
-            duration = String.valueOf(task.getDuration().toMinutes());
+        switch (mode) {
+            case SNAPSHOT:
+                save();
+                break;
+            case JOURNAL:
+                append(Operation.REMOVE + "," + type + "," + id);
+                break;
+            case WRITE_BEHIND:
+                markDirty(id, type);
+                break;
+            case SLOTTED:
+                try {
+                    int epicId = slots.remove(id);
+                    if (epics.containsKey(epicId)) {
+                        writeSlot(epics.get(epicId));
+                    }
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка записи в файл слотов");
+                }
+                syncSlots();
+                break;
         }
+    }
 
-        if (task.getStartTime() != null) {
-            startTime = task.getStartTime().toString();
+    // Пакет сохраняется за один раз: снимок пишется однажды, записи журнала уходят одной пачкой
+    // с одной фиксацией на диск, слоты синхронизируются в конце
+    private void persistPuts(List<? extends Task> items) {
+        if (pendingIds != null) {
+            items.forEach(item -> defer(item.getId(), item.getType()));
+            return;
         }
 
-        return String.format("%d,%s,%s,%s,%s,%s,%s,%s",
-                task.getId(),
-                task.getType(),
-                task.getName(),
-                task.getStatus(),
-                task.getDescription(),
-                epicId,
-                duration,
-                startTime);
+        switch (mode) {
+            case SNAPSHOT:
+                save();
+                break;
+            case JOURNAL:
+                List<String> records = new ArrayList<>(items.size());
+                for (Task item : items) {
+                    records.add(putRecord(item));
+                }
+                appendAll(records);
+                break;
+            case WRITE_BEHIND:
+                for (Task item : items) {
+                    markDirty(item.getId(), item.getType());
+                }
+                break;
+            case SLOTTED:
+                Set<Integer> touchedEpics = new LinkedHashSet<>();
+                try {
+                    for (Task item : items) {
+                        slots.write(item);
+                        if (item.getType() == TaskType.SUBTASK) touchedEpics.add(((Subtask) item).getEpicId());
+                    }
+                    for (Integer epicId : touchedEpics) {
+                        if (epics.containsKey(epicId)) slots.write(epics.get(epicId));
+                    }
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка записи в файл слотов");
+                }
+                syncSlots();
+                break;
+        }
     }
 
-    private Task fromString(String value) {
-        String[] fields = value.split(",");
-        int id = Integer.parseInt(fields[0]);
-        TaskType type = TaskType.valueOf(fields[1]);
-        String name = fields[2];
-        Status status = Status.valueOf(fields[3]);
-        String description = fields[4];
-        String epicId = fields.length > 5 ? fields[5] : "";
-        String durationStr = fields.length > 6 ? fields[6] : "";
-        String startTimeStr = fields.length > 7 ? fields[7] : "";
+    private void persistRemoves(Map<Integer, TaskType> removed) {
+        if (pendingIds != null) {
+            removed.forEach(this::defer);
+            return;
+        }
 
-        Duration duration = Duration.ZERO;
-        if (!durationStr.isEmpty()) {
-            duration = Duration.ofMinutes(Long.parseLong(durationStr));
+        switch (mode) {
+            case SNAPSHOT:
+                save();
+                break;
+            case JOURNAL:
+                List<String> records = new ArrayList<>(removed.size());
+                for (Map.Entry<Integer, TaskType> entry : removed.entrySet()) {
+                    records.add(Operation.REMOVE + "," + entry.getValue() + "," + entry.getKey());
+                }
+                appendAll(records);
+                break;
+            case WRITE_BEHIND:
+                removed.forEach(this::markDirty);
+                break;
+            case SLOTTED:
+                Set<Integer> touchedEpics = new LinkedHashSet<>();
+                try {
+                    for (Integer id : removed.keySet()) {
+                        touchedEpics.add(slots.remove(id));
+                    }
+                    for (Integer epicId : touchedEpics) {
+                        if (epics.containsKey(epicId)) slots.write(epics.get(epicId));
+                    }
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка записи в файл слотов");
+                }
+                syncSlots();
+                break;
         }
+    }
+
+    // Транзакция сохраняется за один раз: для каждого затронутого id пишется его итоговое состояние,
+    // промежуточные состояния на диск не попадают
+    private void persistTransaction(Map<Integer, TaskType> ids, Set<TaskType> clearedTypes) {
+        if (ids.isEmpty() && clearedTypes.isEmpty()) return;
 
-        LocalDateTime startTime = null;
-        if (!startTimeStr.isEmpty()) {
-            startTime = LocalDateTime.parse(startTimeStr);
+        List<Task> puts = new ArrayList<>();
+        Map<Integer, TaskType> removes = new LinkedHashMap<>();
+        for (Map.Entry<Integer, TaskType> entry : ids.entrySet()) {
+            Task current = findStored(entry.getValue(), entry.getKey());
+            if (current != null) {
+                puts.add(current);
+            } else {
+                removes.put(entry.getKey(), entry.getValue());
+            }
         }
 
+        switch (mode) {
+            case SNAPSHOT:
+                save();
+                break;
+            case JOURNAL:
+                List<String> records = new ArrayList<>();
+                for (TaskType type : clearedTypes) {
+                    records.add(Operation.CLEAR + "," + type);
+                }
+                removes.forEach((id, type) -> records.add(Operation.REMOVE + "," + type + "," + id));
+                for (Task task : puts) {
+                    records.add(putRecord(task));
+                }
+                appendAll(records);
+                break;
+            default:
+                clearedTypes.forEach(this::persistClear);
+                if (!removes.isEmpty()) persistRemoves(removes);
+                if (!puts.isEmpty()) persistPuts(puts);
+                break;
+        }
+    }
+
+    private void persistClear(TaskType type) {
+        if (pendingClears != null) {
+            pendingClears.add(type);
+            return;
+        }
+
+        switch (mode) {
+            case SNAPSHOT:
+                save();
+                break;
+            case JOURNAL:
+                append(Operation.CLEAR + "," + type);
+                break;
+            case WRITE_BEHIND:
+                dirty.values().removeIf(t -> t == type || (type == TaskType.EPIC && t == TaskType.SUBTASK));
+                cleared.add(type);
+                startWriteBehind();
+                break;
+            case SLOTTED:
+                try {
+                    slots.clear(type);
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка записи в файл слотов");
+                }
+                if (type == TaskType.SUBTASK) {
+                    for (Epic epic : epics.values()) {
+                        writeSlot(epic);
+                    }
+                }
+                syncSlots();
+                break;
+        }
+    }
+
+    private void writeSlot(Task task) {
+        try {
+            slots.write(task);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в файл слотов");
+        }
+
+        syncSlots();
+    }
+
+    private void syncSlots() {
+        if (durability == Durability.SYNC) {
+            forceSlots();
+        }
+    }
+
+    private void forceSlots() {
+        try {
+            slots.force();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сброса файла слотов на диск");
+        }
+    }
+
+    private void markDirty(int id, TaskType type) {
+        dirty.put(id, type);
+        startWriteBehind();
+
+        if (dirty.size() >= maxDirty) {
+            flushDirty();
+        }
+    }
+
+    // Вызывается под монитором менеджера: за один проход пишется текущее состояние
+    // каждого изменённого id, сколько бы раз он ни менялся с прошлого сброса
+    private void flushDirty() {
+        if (dirty.isEmpty() && cleared.isEmpty()) return;
+
+        for (TaskType type : cleared) {
+            append(Operation.CLEAR + "," + type);
+        }
+        cleared.clear();
+
+        for (TaskType type : new TaskType[]{TaskType.EPIC, TaskType.TASK, TaskType.SUBTASK}) {
+            for (Map.Entry<Integer, TaskType> entry : dirty.entrySet()) {
+                if (entry.getValue() != type) continue;
+
+                Task current = findStored(type, entry.getKey());
+                if (current != null) {
+                    appendPut(current);
+                } else {
+                    append(Operation.REMOVE + "," + type + "," + entry.getKey());
+                }
+            }
+        }
+        dirty.clear();
+    }
+
+    private void flushDirtyQuietly() {
+        synchronized (this) {
+            try {
+                flushDirty();
+            } catch (ManagerSaveException e) {
+                // Несброшенные изменения остаются в наборе до следующего цикла
+            }
+        }
+    }
+
+    private Task findStored(TaskType type, int id) {
         switch (type) {
             case TASK:
-                Task task = new Task(name, description, status, duration, startTime);
-                task.setId(id);
-
-                return task;
+                return tasks.get(id);
             case EPIC:
-                Epic epic = new Epic(name, description);
-                epic.setId(id);
-                epic.setStatus(status);
+                return epics.get(id);
+            default:
+                return subtasks.get(id);
+        }
+    }
 
-                return epic;
-            case SUBTASK:
-                int parentEpicId = Integer.parseInt(epicId);
+    private void appendPut(Task task) {
+        append(putRecord(task));
+    }
 
-                return new Subtask(name, description, id, status, parentEpicId, duration, startTime);
-            default:
+    private String putRecord(Task task) {
+        recordBuilder.setLength(0);
+        recordBuilder.append(Operation.PUT.name()).append(',');
+        codec.encode(task, recordBuilder);
+        return recordBuilder.toString();
+    }
+
+    private void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    private void appendAll(List<String> records) {
+        try {
+            journal.appendAll(records);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал");
+        }
+
+        if (compactor.isDue(journal)) {
+            compact();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writeBehindExecutor != null) {
+            writeBehindExecutor.shutdown();
+        }
+
+        if (journal != null) {
+            flush();
+            compactor.awaitIdle();
+            compactor.close();
+            journal.close();
+            rethrowCompactionError();
+        }
+
+        if (slots != null) {
+            slots.force();
+            slots.close();
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return hydrate(super.getTaskById(id));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return hydrate(super.getEpicById(id));
+    }
 
-                throw new IllegalArgumentException("Неизвестный тип задачи");
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return hydrate(super.getSubtaskById(id));
+    }
+
+    private <T extends Task> T hydrate(T task) {
+        if (hydrated == null || task == null) return task;
+
+        synchronized (hydrated) {
+            task.loadDescription();
+            hydrated.put(task.getId(), task);
         }
+
+        return task;
     }
 
+    @Override
+    public synchronized void createTask(Task task) {
+        runOperation(() -> {
+            super.createTask(task);
+            persistPut(task);
+        });
+    }
 
     @Override
-    public void createTask(Task task) {
-        super.createTask(task);
-        save();
+    public synchronized void createEpic(Epic epic) {
+        runOperation(() -> {
+            super.createEpic(epic);
+            persistPut(epic);
+        });
     }
 
     @Override
-    public void createEpic(Epic epic) {
-        super.createEpic(epic);
-        save();
+    public synchronized void createSubtask(Subtask subtask) {
+        runOperation(() -> {
+            super.createSubtask(subtask);
+            persistPut(subtask);
+        });
     }
 
     @Override
-    public void createSubtask(Subtask subtask) {
-        super.createSubtask(subtask);
-        save();
+    public synchronized void updateTask(Task task) {
+        runOperation(() -> {
+            super.updateTask(task);
+            persistPut(task);
+        });
     }
 
     @Override
-    public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+    public synchronized void updateEpic(Epic epic) {
+        runOperation(() -> {
+            super.updateEpic(epic);
+            persistPut(epic);
+        });
     }
 
     @Override
-    public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+    public synchronized void updateSubtask(Subtask subtask) {
+        runOperation(() -> {
+            super.updateSubtask(subtask);
+            persistPut(subtask);
+        });
     }
 
     @Override
-    public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+    public synchronized void deleteTaskById(int id) {
+        runOperation(() -> {
+            super.deleteTaskById(id);
+            persistRemove(TaskType.TASK, id);
+        });
     }
 
     @Override
-    public void deleteTaskById(int id) {
-        super.deleteTaskById(id);
-        save();
+    public synchronized void deleteEpicById(int id) {
+        runOperation(() -> {
+            super.deleteEpicById(id);
+            persistRemove(TaskType.EPIC, id);
+        });
     }
 
     @Override
-    public void deleteEpicById(int id) {
-        super.deleteEpicById(id);
-        save();
+    public synchronized void deleteSubtaskById(int id) {
+        runOperation(() -> {
+            super.deleteSubtaskById(id);
+            persistRemove(TaskType.SUBTASK, id);
+        });
     }
 
     @Override
-    public void deleteSubtaskById(int id) {
-        super.deleteSubtaskById(id);
-        save();
+    public synchronized void deleteAllTasks() {
+        runOperation(() -> {
+            super.deleteAllTasks();
+            persistClear(TaskType.TASK);
+        });
     }
 
     @Override
-    public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+    public synchronized void deleteAllEpics() {
+        runOperation(() -> {
+            super.deleteAllEpics();
+            persistClear(TaskType.EPIC);
+        });
     }
 
     @Override
-    public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+    public synchronized void deleteAllSubtasks() {
+        runOperation(() -> {
+            super.deleteAllSubtasks();
+            persistClear(TaskType.SUBTASK);
+        });
+    }
+
+    @Override
+    public synchronized void createAll(List<? extends Task> items) {
+        runOperation(() -> {
+            super.createAll(items);
+            persistPuts(items);
+        });
+    }
+
+    @Override
+    public synchronized void updateAll(List<? extends Task> items) {
+        runOperation(() -> {
+            super.updateAll(items);
+            persistPuts(items);
+        });
+    }
+
+    // Поиск слота и применение выполняются под одной блокировкой, чтобы найденное время не заняли
+    @Override
+    public synchronized void scheduleAll(List<? extends Task> items, LocalDateTime notBefore, LocalDateTime notAfter) {
+        super.scheduleAll(items, notBefore, notAfter);
+    }
+
+    @Override
+    public synchronized void deleteAll(List<Integer> ids) {
+        runOperation(() -> {
+            Map<Integer, TaskType> removed = new LinkedHashMap<>();
+            if (ids != null) {
+                for (Integer id : ids) {
+                    if (id != null && getTypeById(id) != null) removed.put(id, getTypeById(id));
+                }
+            }
+
+            super.deleteAll(ids);
+            persistRemoves(removed);
+        });
+    }
+
+    @Override
+    public synchronized void inTransaction(Consumer<TaskManager> work) {
+        super.inTransaction(work);
+    }
+
+    @Override
+    protected void beginTransaction() {
+        super.beginTransaction();
+        pendingIds = new LinkedHashMap<>();
+        pendingClears = EnumSet.noneOf(TaskType.class);
+    }
+
+    // Если сохранить не удалось, изменения откатываются и в памяти, чтобы она не расходилась с файлом
+    @Override
+    protected void commitTransaction() {
+        Map<Integer, TaskType> ids = pendingIds;
+        Set<TaskType> clearedTypes = pendingClears;
+        pendingIds = null;
+        pendingClears = null;
+
+        try {
+            persistTransaction(ids, clearedTypes);
+        } catch (RuntimeException e) {
+            rollbackTransaction();
+            throw e;
+        }
+        super.commitTransaction();
     }
 
     @Override
-    public void deleteAllSubtasks() {
-        super.deleteAllSubtasks();
-        save();
+    protected void rollbackTransaction() {
+        pendingIds = null;
+        pendingClears = null;
+        super.rollbackTransaction();
     }
 }
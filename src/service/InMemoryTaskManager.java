@@ -2,25 +2,101 @@ package service;
 
 import exception.NotFoundException;
 import interfaces.HistoryManager;
+import interfaces.TaskListener;
 import interfaces.TaskManager;
 import model.Epic;
 import model.Status;
 import model.Subtask;
 import model.Task;
-
+import model.TaskEvent;
+import model.TaskType;
+import storage.EntityTable;
+import storage.FreeGapIndex;
+import storage.IntIdList;
+import storage.IntervalTree;
+import storage.SlotGrid;
+import storage.StatusIndex;
+import storage.TextIndex;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class InMemoryTaskManager implements TaskManager {
     protected final HistoryManager historyManager = Managers.getDefaultHistory();
 
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
-    protected final Set<Task> sortedTaskByTime =
-            new TreeSet<>(Comparator.comparing(Task::getStartTime));
+    protected final EntityTable entities = new EntityTable();
+    protected final EntityTable.View<Task> tasks = entities.view(TaskType.TASK);
+    protected final EntityTable.View<Epic> epics = entities.view(TaskType.EPIC);
+    protected final EntityTable.View<Subtask> subtasks = entities.view(TaskType.SUBTASK);
+    protected final StatusIndex statusIndex = new StatusIndex();
+    protected final TextIndex textIndex = new TextIndex();
+    protected static final Comparator<Task> TIME_ORDER = Comparator.comparing(Task::getStartTime);
+
+    protected final Set<Task> sortedTaskByTime = new TreeSet<>(TIME_ORDER);
+    protected final IntervalTree timeline = new IntervalTree();
+    protected final FreeGapIndex freeGaps = new FreeGapIndex();
+    protected SlotGrid timelineGrid;
 
 
     protected int nextId = 1;
+    protected final EventBus eventBus = new EventBus();
+    // События открытой транзакции или операции: рассылаются при фиксации и отбрасываются при откате
+    private List<TaskEvent> pendingEvents;
+    // Журнал отката открытой транзакции: исходное состояние каждого id, снятое при первом изменении
+    private Map<Integer, BeforeImage> undoLog;
+    private int nextIdBeforeTransaction;
+
+    // Состояние записи до первого изменения в транзакции; task == null — запись создана в транзакции
+    private static final class BeforeImage {
+        final Task task;
+        final String name;
+        final boolean descriptionLoaded;
+        final String description;
+        final Status status;
+        final Duration duration;
+        final LocalDateTime startTime;
+        final int epicId;
+        final List<Integer> subtasksId;
+
+        BeforeImage(Task task) {
+            this.task = task;
+            this.name = task != null ? task.getName() : null;
+            this.descriptionLoaded = task != null && task.isDescriptionLoaded();
+            this.description = descriptionLoaded ? task.getDescription() : null;
+            this.status = task != null ? task.getStatus() : null;
+            this.duration = task != null ? task.getDuration() : null;
+            this.startTime = task != null ? task.getStartTime() : null;
+            this.epicId = task instanceof Subtask subtask ? subtask.getEpicId() : 0;
+            this.subtasksId = task instanceof Epic epic ? new ArrayList<>(epic.getSubtasksId()) : null;
+        }
+
+        void restoreFields() {
+            task.setName(name);
+            if (descriptionLoaded && !Objects.equals(task.getDescription(), description)) {
+                task.setDescription(description);
+            }
+            task.setStatus(status);
+
+            if (task instanceof Epic epic) {
+                epic.setSubtasksId(new IntIdList(subtasksId));
+                return;
+            }
+            task.setDuration(duration);
+            task.setStartTime(startTime);
+            if (task instanceof Subtask subtask) {
+                subtask.setEpicId(epicId);
+            }
+        }
+    }
+
+    // Задачи, выровненные по сетке внутри горизонта, проверяются по битовой сетке занятости,
+    // остальные — точно, через дерево интервалов
+    public void enableTimelineGrid(LocalDateTime origin, Duration granularity, Duration horizon) {
+        timelineGrid = new SlotGrid(origin, granularity, horizon);
+        rebuildTimeline();
+    }
 
     @Override
     public List<Task> getAllTasks() {
@@ -39,38 +115,62 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteAllTasks() {
-        for (Task t : tasks.values()) {
-            sortedTaskByTime.remove(t);
-        }
+        runOperation(() -> {
+            for (Task t : tasks.values()) {
+                touch(t.getId());
+                emitDeleted(t);
+                removeFromTimeline(t);
+            }
 
-        tasks.clear();
+            textIndex.removeAll(tasks.keySet());
+            statusIndex.clear(TaskType.TASK);
+            tasks.clear();
+        });
     }
 
     @Override
     public void deleteAllEpics() {
-        for (Epic epic : epics.values()) {
-            for (Integer sId : epic.getSubtasksId()) {
-                Task sub = subtasks.get(sId);
-                sortedTaskByTime.remove(sub);
+        runOperation(() -> {
+            for (Epic epic : epics.values()) {
+                touch(epic.getId());
+                for (Integer sId : epic.getSubtasksId()) {
+                    touch(sId);
+                    Task sub = subtasks.get(sId);
+                    emitDeleted(sub);
+                    removeFromTimeline(sub);
+                }
+                emitDeleted(epic);
             }
-        }
 
-        epics.clear();
-        subtasks.clear();
+            List<Integer> removed = new ArrayList<>(epics.keySet());
+            removed.addAll(subtasks.keySet());
+            textIndex.removeAll(removed);
+            statusIndex.clear(TaskType.EPIC);
+            statusIndex.clear(TaskType.SUBTASK);
+            epics.clear();
+            subtasks.clear();
+        });
     }
 
     @Override
     public void deleteAllSubtasks() {
-        for (Subtask s : subtasks.values()) {
-            sortedTaskByTime.remove(s);
-        }
-
-        for (Epic epic : epics.values()) {
-            epic.getSubtasksId().clear();
-            updateEpicStatus(epic);
-            epic.updateTimeAndDuration(new ArrayList<>());
-        }
-        subtasks.clear();
+        runOperation(() -> {
+            for (Subtask s : subtasks.values()) {
+                touch(s.getId());
+                emitDeleted(s);
+                removeFromTimeline(s);
+            }
+            textIndex.removeAll(subtasks.keySet());
+            statusIndex.clear(TaskType.SUBTASK);
+
+            for (Epic epic : epics.values()) {
+                touch(epic.getId());
+                epic.getSubtasksId().clear();
+                epic.recountSubtasks(List.of());
+                updateEpicStatus(epic);
+            }
+            subtasks.clear();
+        });
     }
 
     @Override
@@ -101,142 +201,610 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     @Override
-    public void createTask(Task task) {
-        if (task == null) throw new IllegalArgumentException("Передан null объект");
-        if (isTimeOverlap(task)) throw new IllegalArgumentException("Задачи пересекаются по времени");
+    public Task findById(int id) {
+        return entities.get(id);
+    }
 
-        task.setId(nextId++);
-        tasks.put(task.getId(), task);
+    @Override
+    public TaskType getTypeById(int id) {
+        return entities.typeOf(id);
+    }
 
-        if (task.getStartTime() != null) {
-            sortedTaskByTime.add(task);
-        }
+    @Override
+    public void createTask(Task task) {
+        runOperation(() -> {
+            if (task == null) throw new IllegalArgumentException("Передан null объект");
+            if (isTimeOverlap(task)) throw new IllegalArgumentException("Задачи пересекаются по времени");
+
+            insertTask(task);
+            addToTimeline(task);
+        });
     }
 
     @Override
     public void createEpic(Epic epic) {
-        if (epic == null) throw new IllegalArgumentException("Передан null объект");
+        runOperation(() -> {
+            if (epic == null) throw new IllegalArgumentException("Передан null объект");
 
-        epic.setId(nextId++);
-        epics.put(epic.getId(), epic);
+            insertEpic(epic);
+        });
     }
 
     @Override
     public void createSubtask(Subtask subtask) {
-        if (subtask == null) throw new IllegalArgumentException("Передан null объект");
+        runOperation(() -> {
+            if (subtask == null) throw new IllegalArgumentException("Передан null объект");
 
-        int epicId = subtask.getEpicId();
-        Epic epic = epics.get(epicId);
+            int epicId = subtask.getEpicId();
+            Epic epic = epics.get(epicId);
 
-        if (epic == null) throw new NotFoundException("Объекта с ID " + epicId + " не существует");
-        if (isTimeOverlap(subtask)) throw new IllegalArgumentException("Задачи пересекаются по времени");
+            if (epic == null) throw new NotFoundException("Объекта с ID " + epicId + " не существует");
+            if (isTimeOverlap(subtask)) throw new IllegalArgumentException("Задачи пересекаются по времени");
 
-        if (subtask.getId() == epicId) {
-            throw new IllegalArgumentException("Подзадача не может иметь тот же ID, что и её эпик");
-        }
+            if (subtask.getId() == epicId) {
+                throw new IllegalArgumentException("Подзадача не может иметь тот же ID, что и её эпик");
+            }
 
-        subtask.setId(nextId++);
-        subtasks.put(subtask.getId(), subtask);
+            insertSubtask(subtask);
+            addToTimeline(subtask);
+        });
+    }
 
-        if (subtask.getStartTime() != null) {
-            sortedTaskByTime.add(subtask);
-        }
+    @Override
+    public void updateTask(Task task) {
+        runOperation(() -> {
+            if (task == null) throw new IllegalArgumentException("Передан null объект");
+            if (!tasks.containsKey(task.getId())) throw new NotFoundException("Объекта с ID " + task.getId()
+                    + " не существует");
+            if (isTimeOverlap(task)) throw new IllegalArgumentException("Задачи пересекаются по времени");
+
+            removeFromTimeline(tasks.get(task.getId()));
+            replaceTask(task);
+            addToTimeline(task);
+        });
+    }
 
-        epic.getSubtasksId().add(subtask.getId());
-        epic.updateTimeAndDuration(getSubtaskByEpicId(epicId));
-        updateEpicStatus(epic);
+    @Override
+    public void updateEpic(Epic epic) {
+        runOperation(() -> {
+            if (epic == null) throw new IllegalArgumentException("Передан null объект");
+            if (!epics.containsKey(epic.getId())) throw new NotFoundException("Объекта с ID " + epic.getId()
+                    + " не существует");
+
+            replaceEpic(epic);
+        });
     }
 
     @Override
-    public void updateTask(Task task) {
+    public void updateSubtask(Subtask subtask) {
+        runOperation(() -> {
+            if (subtask == null) throw new IllegalArgumentException("Передан null объект");
+            if (!subtasks.containsKey(subtask.getId())) throw new NotFoundException("Объекта с ID " +
+                    subtask.getId() + " не существует");
+            if (!epics.containsKey(subtask.getEpicId())) throw new NotFoundException("Объекта с ID " +
+                    subtask.getEpicId() + " не существует");
+            if (isTimeOverlap(subtask)) throw new IllegalArgumentException("Задачи пересекаются по времени");
+
+            removeFromTimeline(subtasks.get(subtask.getId()));
+            replaceSubtask(subtask);
+            addToTimeline(subtask);
+        });
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        runOperation(() -> {
+            if (!tasks.containsKey(id)) throw new NotFoundException("Объекта с ID " + id
+                    + " не существует");
+
+            removeTask(id);
+        });
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        runOperation(() -> {
+            if (!epics.containsKey(id)) throw new NotFoundException("Объекта с ID " + id
+                    + " не существует");
+
+            removeEpic(id);
+        });
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        runOperation(() -> {
+            if (!subtasks.containsKey(id)) throw new NotFoundException("Объекта с ID " + id
+                    + " не существует");
+
+            removeSubtask(id);
+        });
+    }
+
+    // Пакет проверяется целиком до первого изменения, поэтому применяется полностью или не применяется вовсе.
+    // Пересечения внутри пакета ищутся одним проходом по отсортированному пакету, с остальными задачами —
+    // через индекс времени
+    @Override
+    public void createAll(List<? extends Task> items) {
+        runOperation(() -> {
+            checkBatch(items);
+            for (Task item : items) {
+                if (item.getType() == TaskType.SUBTASK && !epics.containsKey(((Subtask) item).getEpicId())) {
+                    throw new NotFoundException("Объекта с ID " + ((Subtask) item).getEpicId() + " не существует");
+                }
+            }
+            checkBatchOverlaps(items);
+            for (Task item : items) {
+                if (isTimeOverlap(item)) throw new IllegalArgumentException("Задачи пересекаются по времени");
+            }
+
+            for (Task item : items) {
+                switch (item.getType()) {
+                    case TASK -> insertTask(item);
+                    case EPIC -> insertEpic((Epic) item);
+                    case SUBTASK -> insertSubtask((Subtask) item);
+                }
+                addToTimeline(item);
+            }
+        });
+    }
+
+    // Прежние интервалы обновляемых задач на время проверки снимаются со шкалы, чтобы задачи пакета
+    // могли занять время друг друга
+    @Override
+    public void updateAll(List<? extends Task> items) {
+        runOperation(() -> {
+            checkBatch(items);
+            Set<Integer> seen = new HashSet<>();
+            List<Task> previous = new ArrayList<>(items.size());
+            for (Task item : items) {
+                if (!seen.add(item.getId())) {
+                    throw new IllegalArgumentException("ID " + item.getId() + " встречается в пакете дважды");
+                }
+                if (entities.typeOf(item.getId()) != item.getType()) {
+                    throw new NotFoundException("Объекта с ID " + item.getId() + " не существует");
+                }
+                if (item.getType() == TaskType.SUBTASK && !epics.containsKey(((Subtask) item).getEpicId())) {
+                    throw new NotFoundException("Объекта с ID " + ((Subtask) item).getEpicId() + " не существует");
+                }
+                previous.add(entities.get(item.getId()));
+            }
+            checkBatchOverlaps(items);
+
+            previous.forEach(this::removeFromTimeline);
+            for (Task item : items) {
+                if (isTimeOverlap(item)) {
+                    previous.forEach(this::addToTimeline);
+                    throw new IllegalArgumentException("Задачи пересекаются по времени");
+                }
+            }
+
+            for (Task item : items) {
+                switch (item.getType()) {
+                    case TASK -> replaceTask(item);
+                    case EPIC -> replaceEpic((Epic) item);
+                    case SUBTASK -> replaceSubtask((Subtask) item);
+                }
+                addToTimeline(item);
+            }
+        });
+    }
+
+    @Override
+    public void scheduleEarliest(Task task, LocalDateTime notBefore, LocalDateTime notAfter) {
         if (task == null) throw new IllegalArgumentException("Передан null объект");
-        if (!tasks.containsKey(task.getId())) throw new NotFoundException("Объекта с ID " + task.getId()
-                + " не существует");
-        if (isTimeOverlap(task)) throw new IllegalArgumentException("Задачи пересекаются по времени");
 
-        sortedTaskByTime.remove(tasks.get(task.getId()));
-        tasks.put(task.getId(), task);
+        scheduleAll(List.of(task), notBefore, notAfter);
+    }
+
+    // Задачи по порядку ставятся на самое раннее свободное время окна [notBefore, notAfter], оставшееся
+    // после предыдущих; новые создаются, существующие переносятся, и их прежнее время считается свободным.
+    // Если хоть одна задача не помещается, не меняется ничего
+    @Override
+    public void scheduleAll(List<? extends Task> items, LocalDateTime notBefore, LocalDateTime notAfter) {
+        checkBatch(items);
+        if (notBefore == null) throw new IllegalArgumentException("Не задано начало интервала");
+        if (notAfter != null && notAfter.isBefore(notBefore)) {
+            throw new IllegalArgumentException("Конец интервала раньше его начала");
+        }
+
+        List<Task> moved = new ArrayList<>();
+        for (Task item : items) {
+            if (item.getType() == TaskType.EPIC) {
+                throw new IllegalArgumentException("Время эпика рассчитывается по его подзадачам");
+            }
+            if (item.getType() == TaskType.SUBTASK && !epics.containsKey(((Subtask) item).getEpicId())) {
+                throw new NotFoundException("Объекта с ID " + ((Subtask) item).getEpicId() + " не существует");
+            }
+            if (entities.typeOf(item.getId()) == item.getType()) moved.add(item);
+        }
+
+        LocalDateTime[] starts = findSlots(items, moved, notBefore, notAfter);
+
+        // Время ставится копиям: переданный объект может быть хранимым, и его изменение до транзакции
+        // попало бы в снимок для отката. Переданные объекты получают id и время только после фиксации
+        List<Task> placed = new ArrayList<>(items.size());
+        List<Task> createdCopies = new ArrayList<>();
+        List<Task> movedCopies = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Task copy = copyOf(items.get(i));
+            if (copy.getDuration() == null) copy.setDuration(Duration.ZERO);
+            copy.setStartTime(starts[i]);
+            placed.add(copy);
+            if (entities.typeOf(copy.getId()) == copy.getType()) {
+                movedCopies.add(copy);
+            } else {
+                createdCopies.add(copy);
+            }
+        }
+
+        inTransaction(tx -> {
+            if (!createdCopies.isEmpty()) tx.createAll(createdCopies);
+            if (!movedCopies.isEmpty()) tx.updateAll(movedCopies);
+        });
+
+        for (int i = 0; i < items.size(); i++) {
+            Task item = items.get(i);
+            item.setId(placed.get(i).getId());
+            item.setDuration(placed.get(i).getDuration());
+            item.setStartTime(starts[i]);
+        }
+    }
 
-        if (task.getStartTime() != null) {
-            sortedTaskByTime.add(task);
+    // Найденные слоты временно занимаются в индексе под отрицательными id, чтобы следующие задачи
+    // их обходили; после поиска индекс возвращается в исходное состояние
+    private LocalDateTime[] findSlots(List<? extends Task> items, List<Task> moved, LocalDateTime notBefore,
+                                      LocalDateTime notAfter) {
+        for (Task item : moved) {
+            freeGaps.remove(item.getId());
         }
+
+        LocalDateTime[] starts = new LocalDateTime[items.size()];
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                Duration duration = items.get(i).getDuration() != null ? items.get(i).getDuration() : Duration.ZERO;
+                starts[i] = freeGaps.findEarliest(duration, notBefore, notAfter);
+                if (starts[i] == null) throw new IllegalArgumentException("Нет свободного времени в заданном интервале");
+
+                freeGaps.add(-i - 1, starts[i], starts[i].plus(duration));
+            }
+        } finally {
+            for (int i = 0; i < items.size(); i++) {
+                freeGaps.remove(-i - 1);
+            }
+            for (Task item : moved) {
+                Task stored = entities.get(item.getId());
+                if (stored.getStartTime() != null) {
+                    freeGaps.add(stored.getId(), stored.getStartTime(), stored.getEndTime());
+                }
+            }
+        }
+
+        return starts;
     }
 
+    // Подзадачи удаляемого эпика удаляются вместе с ним, поэтому их id в пакете пропускаются
     @Override
-    public void updateEpic(Epic epic) {
-        if (epic == null) throw new IllegalArgumentException("Передан null объект");
-        if (!epics.containsKey(epic.getId())) throw new NotFoundException("Объекта с ID " + epic.getId()
-                + " не существует");
+    public void deleteAll(List<Integer> ids) {
+        runOperation(() -> {
+            if (ids == null) throw new IllegalArgumentException("Передан null объект");
+
+            Set<Integer> seen = new HashSet<>();
+            for (Integer id : ids) {
+                if (id == null || entities.typeOf(id) == null) {
+                    throw new NotFoundException("Объекта с ID " + id + " не существует");
+                }
+                if (!seen.add(id)) throw new IllegalArgumentException("ID " + id + " встречается в пакете дважды");
+            }
 
-        epics.put(epic.getId(), epic);
+            for (int id : ids) {
+                TaskType type = entities.typeOf(id);
+                if (type == null) continue;
+
+                switch (type) {
+                    case TASK -> removeTask(id);
+                    case EPIC -> removeEpic(id);
+                    case SUBTASK -> removeSubtask(id);
+                }
+            }
+        });
     }
 
+    // Все изменения внутри work применяются вместе или откатываются по журналу исходных состояний:
+    // стоимость отката пропорциональна числу затронутых id. Вложенная транзакция становится частью внешней.
+    // Позиции в истории просмотров для удалённых и затем восстановленных записей не возвращаются
     @Override
-    public void updateSubtask(Subtask subtask) {
-        if (subtask == null) throw new IllegalArgumentException("Передан null объект");
-        if (!subtasks.containsKey(subtask.getId())) throw new NotFoundException("Объекта с ID " +
-                subtask.getId() + " не существует");
-        if (!epics.containsKey(subtask.getEpicId())) throw new NotFoundException("Объекта с ID " +
-                subtask.getEpicId() + " не существует");
-        if (isTimeOverlap(subtask)) throw new IllegalArgumentException("Задачи пересекаются по времени");
-
-        sortedTaskByTime.remove(subtasks.get(subtask.getId()));
-        subtasks.put(subtask.getId(), subtask);
+    public void inTransaction(Consumer<TaskManager> work) {
+        if (work == null) throw new IllegalArgumentException("Передан null объект");
+        if (undoLog != null) {
+            work.accept(this);
+            return;
+        }
+
+        beginTransaction();
+        try {
+            work.accept(this);
+        } catch (RuntimeException | Error e) {
+            rollbackTransaction();
+            throw e;
+        }
+        commitTransaction();
+    }
+
+    protected boolean isInTransaction() {
+        return undoLog != null;
+    }
+
+    protected void beginTransaction() {
+        undoLog = new LinkedHashMap<>();
+        nextIdBeforeTransaction = nextId;
+        pendingEvents = new ArrayList<>();
+    }
+
+    protected void commitTransaction() {
+        undoLog = null;
+        List<TaskEvent> events = pendingEvents;
+        pendingEvents = null;
+        eventBus.publish(events);
+    }
+
+    // Откат в три прохода: сначала со шкалы снимаются текущие интервалы, затем возвращаются объекты,
+    // и только потом шкала заполняется исходными интервалами — так промежуточные состояния
+    // транзакции не сталкиваются с исходными
+    protected void rollbackTransaction() {
+        Map<Integer, BeforeImage> log = undoLog;
+        undoLog = null;
 
-        if (subtask.getStartTime() != null) {
-            sortedTaskByTime.add(subtask);
+        for (Integer id : log.keySet()) {
+            Task current = entities.get(id);
+            if (current != null && current.getType() != TaskType.EPIC) removeFromTimeline(current);
         }
 
+        for (Map.Entry<Integer, BeforeImage> entry : log.entrySet()) {
+            int id = entry.getKey();
+            BeforeImage image = entry.getValue();
+            TaskType currentType = entities.typeOf(id);
+            if (currentType != null) viewOf(currentType).remove(id);
+            unindex(id);
+
+            if (image.task == null) {
+                historyManager.remove(id);
+                continue;
+            }
+            image.restoreFields();
+            switch (image.task.getType()) {
+                case TASK -> tasks.put(id, image.task);
+                case EPIC -> epics.put(id, (Epic) image.task);
+                case SUBTASK -> subtasks.put(id, (Subtask) image.task);
+            }
+        }
+
+        for (BeforeImage image : log.values()) {
+            if (image.task == null) continue;
+
+            if (image.task.getType() != TaskType.EPIC) addToTimeline(image.task);
+            indexEntity(image.task);
+        }
+        for (BeforeImage image : log.values()) {
+            if (image.task instanceof Epic epic) updateEpicStatus(epic);
+        }
+
+        nextId = nextIdBeforeTransaction;
+        pendingEvents = null;
+    }
+
+    // Независимая копия записи: не меняется вместе с оригиналом
+    protected static <T extends Task> T copyOf(T task) {
+        Task copy = switch (task.getType()) {
+            case TASK -> new Task(task.getName(), task.getDescription(), task.getId(), task.getStatus(),
+                    task.getDuration(), task.getStartTime());
+            case EPIC -> {
+                Epic epic = new Epic(task.getName(), task.getDescription(), task.getId());
+                epic.setStatus(task.getStatus());
+                epic.setDuration(task.getDuration());
+                epic.setStartTime(task.getStartTime());
+                epic.setEndTime(task.getEndTime());
+                epic.setSubtasksId(new IntIdList(((Epic) task).getSubtasksId()));
+                yield epic;
+            }
+            case SUBTASK -> new Subtask(task.getName(), task.getDescription(), task.getId(), task.getStatus(),
+                    ((Subtask) task).getEpicId(), task.getDuration(), task.getStartTime());
+        };
+
+        @SuppressWarnings("unchecked")
+        T typed = (T) copy;
+        return typed;
+    }
+
+    @Override
+    public TaskListener.Subscription subscribe(TaskListener listener) {
+        return eventBus.subscribe(listener);
+    }
+
+    @Override
+    public TaskListener.Subscription subscribeAsync(TaskListener listener, int capacity, int maxBatch) {
+        return eventBus.subscribeAsync(listener, capacity, maxBatch);
+    }
+
+    private void emitCreated(Task task) {
+        if (eventBus.hasListeners()) emit(new TaskEvent(TaskEvent.Kind.CREATED, null, copyOf(task)));
+    }
+
+    private void emitUpdated(Task before, Task after) {
+        if (before != null) emit(new TaskEvent(TaskEvent.Kind.UPDATED, before, copyOf(after)));
+    }
+
+    private void emitDeleted(Task task) {
+        if (eventBus.hasListeners()) emit(new TaskEvent(TaskEvent.Kind.DELETED, copyOf(task), null));
+    }
+
+    // Публичное изменение вне транзакции: события копятся до конца самого внешнего вызова, то есть
+    // до того, как подкласс сохранит или опубликует изменение, и отбрасываются, если оно сорвалось.
+    // Внутри транзакции или уже открытой операции события идут в её буфер
+    protected void runOperation(Runnable work) {
+        if (pendingEvents != null) {
+            work.run();
+            return;
+        }
+
+        pendingEvents = new ArrayList<>();
+        List<TaskEvent> events;
+        try {
+            work.run();
+            events = pendingEvents;
+        } finally {
+            pendingEvents = null;
+        }
+        eventBus.publish(events);
+    }
+
+    private void emit(TaskEvent event) {
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+        } else {
+            eventBus.publish(List.of(event));
+        }
+    }
+
+    private void touch(int id) {
+        if (undoLog != null && !undoLog.containsKey(id)) {
+            undoLog.put(id, new BeforeImage(entities.get(id)));
+        }
+    }
+
+    private void checkBatch(List<? extends Task> items) {
+        if (items == null) throw new IllegalArgumentException("Передан null объект");
+
+        for (Task item : items) {
+            if (item == null) throw new IllegalArgumentException("Передан null объект");
+        }
+    }
+
+    private static void checkBatchOverlaps(List<? extends Task> items) {
+        List<Task> timed = new ArrayList<>();
+        for (Task item : items) {
+            if (item.getStartTime() != null) timed.add(item);
+        }
+        timed.sort(TIME_ORDER);
+
+        LocalDateTime latestEnd = null;
+        for (Task item : timed) {
+            if (latestEnd != null && !item.getStartTime().isAfter(latestEnd)) {
+                throw new IllegalArgumentException("Задачи пересекаются по времени");
+            }
+            if (latestEnd == null || item.getEndTime().isAfter(latestEnd)) latestEnd = item.getEndTime();
+        }
+    }
+
+    private void insertTask(Task task) {
+        task.setId(nextId++);
+        touch(task.getId());
+        tasks.put(task.getId(), task);
+        indexEntity(task);
+        emitCreated(task);
+    }
+
+    private void insertEpic(Epic epic) {
+        epic.setId(nextId++);
+        touch(epic.getId());
+        epic.setSubtasksId(epic.getSubtasksId());
+        epics.put(epic.getId(), epic);
+        indexEntity(epic);
+        emitCreated(epic);
+    }
+
+    private void insertSubtask(Subtask subtask) {
+        subtask.setId(nextId++);
+        touch(subtask.getId());
+        touch(subtask.getEpicId());
+        subtasks.put(subtask.getId(), subtask);
+        indexEntity(subtask);
+        emitCreated(subtask);
+
         Epic epic = epics.get(subtask.getEpicId());
-        epic.updateTimeAndDuration(getSubtaskByEpicId(epic.getId()));
+        epic.getSubtasksId().add(subtask.getId());
+        ensureCounters(epic);
+        epic.trackSubtask(subtask);
         updateEpicStatus(epic);
     }
 
-    @Override
-    public void deleteTaskById(int id) {
-        Task task = tasks.get(id);
+    private void replaceTask(Task task) {
+        touch(task.getId());
+        Task before = eventBus.hasListeners() ? copyOf(tasks.get(task.getId())) : null;
+        tasks.put(task.getId(), task);
+        indexEntity(task);
+        emitUpdated(before, task);
+    }
 
-        if (!tasks.containsKey(id)) throw new NotFoundException("Объекта с ID " + id
-                + " не существует");
+    private void replaceEpic(Epic epic) {
+        touch(epic.getId());
+        Epic before = eventBus.hasListeners() ? copyOf(epics.get(epic.getId())) : null;
+        epics.put(epic.getId(), epic);
+        indexEntity(epic);
+        emitUpdated(before, epic);
+    }
+
+    private void replaceSubtask(Subtask subtask) {
+        touch(subtask.getId());
+        touch(subtask.getEpicId());
+        Subtask before = eventBus.hasListeners() ? copyOf(subtasks.get(subtask.getId())) : null;
+        subtasks.put(subtask.getId(), subtask);
+        indexEntity(subtask);
+        emitUpdated(before, subtask);
+
+        Epic epic = epics.get(subtask.getEpicId());
+        ensureCounters(epic);
+        if (epic.isTracking(subtask.getId())) {
+            epic.trackSubtask(subtask);
+        }
+        updateEpicStatus(epic);
+    }
 
-        sortedTaskByTime.remove(task);
+    private void removeTask(int id) {
+        touch(id);
+        emitDeleted(tasks.get(id));
+        removeFromTimeline(tasks.get(id));
         tasks.remove(id);
+        unindex(id);
 
         historyManager.remove(id);
     }
 
-    @Override
-    public void deleteEpicById(int id) {
-        if (!epics.containsKey(id)) throw new NotFoundException("Объекта с ID " + id
-                + " не существует");
-
+    private void removeEpic(int id) {
+        touch(id);
         Epic epic = epics.get(id);
         List<Integer> subtaskId = epic.getSubtasksId();
         for (Integer sId : subtaskId) {
+            touch(sId);
             Task sub = subtasks.get(sId);
+            emitDeleted(sub);
             subtasks.remove(sId);
-            sortedTaskByTime.remove(sub);
+            removeFromTimeline(sub);
+            unindex(sId);
             historyManager.remove(sId);
         }
+        emitDeleted(epic);
         epics.remove(id);
+        unindex(id);
 
         historyManager.remove(id);
     }
 
-    @Override
-    public void deleteSubtaskById(int id) {
+    private void removeSubtask(int id) {
         Subtask sub = subtasks.get(id);
+        touch(id);
+        touch(sub.getEpicId());
+        emitDeleted(sub);
 
-        if (!subtasks.containsKey(id)) throw new NotFoundException("Объекта с ID " + id
-                + " не существует");
-
-        sortedTaskByTime.remove(sub);
-        Epic epic = epics.get(subtasks.get(id).getEpicId());
+        removeFromTimeline(sub);
+        Epic epic = epics.get(sub.getEpicId());
         epic.getSubtasksId().remove((Integer) id);
-        epic.updateTimeAndDuration(getSubtaskByEpicId(epic.getId()));
+        ensureCounters(epic);
+        epic.untrackSubtask(id);
         updateEpicStatus(epic);
 
         subtasks.remove(id);
+        unindex(id);
 
         historyManager.remove(id);
     }
@@ -256,32 +824,186 @@ public class InMemoryTaskManager implements TaskManager {
         return result;
     }
 
+    // Статус выводится из счётчиков эпика за O(1); полный пересчёт нужен только эпику без счётчиков
     @Override
     public void updateEpicStatus(Epic epic) {
+        runOperation(() -> {
+            if (epics.get(epic.getId()) == epic) touch(epic.getId());
+            Status previous = epic.getStatus();
+            deriveEpicStatus(epic);
+
+            if (epics.get(epic.getId()) == epic) {
+                statusIndex.index(epic.getId(), TaskType.EPIC, epic.getStatus());
+                if (previous != epic.getStatus() && eventBus.hasListeners()) {
+                    Epic before = copyOf(epic);
+                    before.setStatus(previous);
+                    emit(new TaskEvent(TaskEvent.Kind.STATUS_CHANGED, before, copyOf(epic)));
+                }
+            }
+        });
+    }
+
+    // Пересчёт статуса без обновления индексов, безопасный для параллельного вызова по разным эпикам
+    protected void deriveEpicStatus(Epic epic) {
+        ensureCounters(epic);
+
         if (epic.getSubtasksId().isEmpty()) {
             epic.setStatus(Status.NEW);
             return;
         }
 
-        List<Integer> subtaskIds = epic.getSubtasksId();
+        epic.setStatus(epic.statusFromCounts());
+    }
+
+    protected void ensureCounters(Epic epic) {
+        if (!epic.hasCounters()) {
+            epic.recountSubtasks(subtasksOf(epic));
+        }
+    }
+
+    private List<Subtask> subtasksOf(Epic epic) {
+        List<Subtask> result = new ArrayList<>(epic.getSubtasksId().size());
+        for (Integer sId : epic.getSubtasksId()) {
+            result.add(subtasks.get(sId));
+        }
+
+        return result;
+    }
+
+    // Сверяет инкрементальные агрегаты эпиков с полным пересчётом по подзадачам
+    protected void verifyEpicCounters() {
+        for (Epic epic : epics.values()) {
+            if (!epic.hasCounters()) continue;
+
+            Epic expected = new Epic(epic.getName(), null, epic.getId());
+            expected.recountSubtasks(subtasksOf(epic));
+
+            for (Status status : Status.values()) {
+                if (expected.getStatusCount(status) != epic.getStatusCount(status)) {
+                    throw new IllegalStateException("Счётчики статусов эпика " + epic.getId()
+                            + " расходятся с подзадачами");
+                }
+            }
+
+            if (!Objects.equals(expected.getDuration(), epic.getDuration())
+                    || !Objects.equals(expected.getStartTime(), epic.getStartTime())
+                    || !Objects.equals(expected.getEndTime(), epic.getEndTime())) {
+                throw new IllegalStateException("Время эпика " + epic.getId() + " расходится с подзадачами");
+            }
+
+            Status status = epic.getSubtasksId().isEmpty() ? Status.NEW : expected.statusFromCounts();
+            if (status != epic.getStatus()) {
+                throw new IllegalStateException("Статус эпика " + epic.getId() + " расходится с подзадачами");
+            }
+        }
+    }
+
+    @Override
+    public List<Task> getTasksPage(int after, int limit) {
+        return tasks.valuesAfter(after, limit);
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int after, int limit) {
+        return epics.valuesAfter(after, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int after, int limit) {
+        return subtasks.valuesAfter(after, limit);
+    }
+
+    // Кандидаты берутся из самого узкого индекса (эпик, статус или тип), остальные условия
+    // проверяются по индексам за O(1) на кандидата; null в параметре означает «любой»
+    @Override
+    public List<Task> query(TaskType type, Status status, Integer epicId) {
+        Collection<Integer> candidates;
+
+        if (epicId != null) {
+            Epic epic = epics.get((int) epicId);
+            if (epic == null) throw new NotFoundException("Объекта с ID " + epicId + " не существует");
+            if (type != null && type != TaskType.SUBTASK) return new ArrayList<>();
+
+            candidates = epic.getSubtasksId();
+        } else if (status != null && type != null) {
+            candidates = statusIndex.ids(type, status);
+        } else if (status != null) {
+            candidates = new ArrayList<>(statusIndex.count(status));
+            for (TaskType each : TaskType.values()) {
+                candidates.addAll(statusIndex.ids(each, status));
+            }
+        } else if (type != null) {
+            candidates = viewOf(type).keySet();
+        } else {
+            candidates = new ArrayList<>(entities.size());
+            candidates.addAll(tasks.keySet());
+            candidates.addAll(epics.keySet());
+            candidates.addAll(subtasks.keySet());
+        }
+
+        int[] matched = new int[candidates.size()];
+        int count = 0;
+        for (int id : candidates) {
+            if (type != null && entities.typeOf(id) != type) continue;
+            if (status != null && statusIndex.statusOf(id) != status) continue;
+
+            matched[count++] = id;
+        }
+        Arrays.sort(matched, 0, count);
+
+        List<Task> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(entities.get(matched[i]));
+        }
 
-        boolean allNew = true;
-        boolean allDone = true;
+        return result;
+    }
 
-        for (int sId : subtaskIds) {
-            Subtask subtask = subtasks.get(sId);
-            Status status = subtask.getStatus();
+    private Map<Integer, ? extends Task> viewOf(TaskType type) {
+        return switch (type) {
+            case TASK -> tasks;
+            case EPIC -> epics;
+            case SUBTASK -> subtasks;
+        };
+    }
 
-            if (status != Status.DONE) allDone = false;
+    @Override
+    public List<Task> search(String query, int limit) {
+        List<Task> result = new ArrayList<>();
+        for (int id : textIndex.search(query, limit)) {
+            result.add(entities.get(id));
+        }
 
-            if (status != Status.NEW) allNew = false;
+        return result;
+    }
 
-            if (!allDone && !allNew) break;
+    private void indexEntity(Task task) {
+        statusIndex.index(task.getId(), task.getType(), task.getStatus());
+        if (task.isDescriptionLoaded()) {
+            textIndex.index(task.getId(), task.getName(), task.getDescription());
+        } else {
+            // Описание ленивой задачи не читаем с диска при загрузке: индекс запросит его сам при поиске
+            textIndex.indexLazy(task.getId(), task.getName(), task::getDescription);
         }
+    }
 
-        if (allNew) epic.setStatus(Status.NEW);
-        else if (allDone) epic.setStatus(Status.DONE);
-        else epic.setStatus(Status.IN_PROGRESS);
+    private void unindex(int id) {
+        statusIndex.remove(id);
+        textIndex.remove(id);
+    }
+
+    protected void rebuildSecondaryIndexes() {
+        statusIndex.clear();
+        textIndex.clear();
+        for (Task task : tasks.values()) {
+            indexEntity(task);
+        }
+        for (Epic epic : epics.values()) {
+            indexEntity(epic);
+        }
+        for (Subtask subtask : subtasks.values()) {
+            indexEntity(subtask);
+        }
     }
 
     @Override
@@ -293,9 +1015,60 @@ public class InMemoryTaskManager implements TaskManager {
     protected boolean isTimeOverlap(Task newTask) {
         if (newTask.getStartTime() == null) return false;
 
-        return sortedTaskByTime.stream()
-                .filter(t -> t.getStartTime() != null && !t.equals(newTask))
-                .anyMatch(t -> !(newTask.getEndTime().isBefore(t.getStartTime())
-                        || newTask.getStartTime().isAfter(t.getEndTime())));
+        if (timelineGrid != null && timelineGrid.overlaps(newTask.getStartTime(), newTask.getEndTime(), newTask)) {
+            return true;
+        }
+
+        return timeline.overlaps(newTask.getStartTime(), newTask.getEndTime(), newTask);
+    }
+
+    protected void addToTimeline(Task task) {
+        if (task.getStartTime() == null) return;
+
+        sortedTaskByTime.add(task);
+        freeGaps.add(task.getId(), task.getStartTime(), task.getEndTime());
+        if (timelineGrid == null || !timelineGrid.reserve(task)) {
+            timeline.put(task);
+        }
+    }
+
+    protected void removeFromTimeline(Task task) {
+        if (task == null) return;
+
+        if (task.getStartTime() != null) sortedTaskByTime.remove(task);
+        freeGaps.remove(task.getId());
+        if (timelineGrid == null || !timelineGrid.release(task.getId())) {
+            timeline.remove(task.getId());
+        }
+    }
+
+    // Индекс по времени строится из отсортированного массива за линейное время вместо N вставок в дерево
+    protected void rebuildTimeline() {
+        List<Task> timed = new ArrayList<>(tasks.size() + subtasks.size());
+        for (Task task : tasks.values()) {
+            if (task.getStartTime() != null) timed.add(task);
+        }
+        for (Subtask subtask : subtasks.values()) {
+            if (subtask.getStartTime() != null) timed.add(subtask);
+        }
+        timed.sort(TIME_ORDER.thenComparingInt(Task::getId));
+        freeGaps.clear();
+        for (Task task : timed) {
+            freeGaps.add(task.getId(), task.getStartTime(), task.getEndTime());
+        }
+
+        if (timelineGrid != null) {
+            timelineGrid.clear();
+            List<Task> offGrid = new ArrayList<>();
+            for (Task task : timed) {
+                if (!timelineGrid.reserve(task)) offGrid.add(task);
+            }
+            timeline.buildFromSorted(offGrid);
+        } else {
+            timeline.buildFromSorted(timed);
+        }
+
+        sortedTaskByTime.clear();
+        sortedTaskByTime.addAll(timed);
     }
 }
@@ -0,0 +1,54 @@
+package service;
+
+import java.time.Duration;
+
+public class LoadReport {
+    private final int entityCount;
+    private final Duration read;
+    private final Duration link;
+    private final Duration timeline;
+    private final Duration aggregates;
+
+    public LoadReport(int entityCount, long readNanos, long linkNanos, long timelineNanos, long aggregatesNanos) {
+        this.entityCount = entityCount;
+        this.read = Duration.ofNanos(readNanos);
+        this.link = Duration.ofNanos(linkNanos);
+        this.timeline = Duration.ofNanos(timelineNanos);
+        this.aggregates = Duration.ofNanos(aggregatesNanos);
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public Duration getRead() {
+        return read;
+    }
+
+    public Duration getLink() {
+        return link;
+    }
+
+    public Duration getTimeline() {
+        return timeline;
+    }
+
+    public Duration getAggregates() {
+        return aggregates;
+    }
+
+    public Duration getTotal() {
+        return read.plus(link).plus(timeline).plus(aggregates);
+    }
+
+    @Override
+    public String toString() {
+        return "LoadReport{" +
+                "entityCount=" + entityCount +
+                ", read=" + read.toMillis() + "ms" +
+                ", link=" + link.toMillis() + "ms" +
+                ", timeline=" + timeline.toMillis() + "ms" +
+                ", aggregates=" + aggregates.toMillis() + "ms" +
+                '}';
+    }
+}
@@ -10,6 +10,11 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getConcurrent() {
+
+        return new ConcurrentTaskManager(new InMemoryTaskManager());
+    }
+
     public static HistoryManager getDefaultHistory() {
 
         return new InMemoryHistoryManager();
@@ -0,0 +1,8 @@
+package service;
+
+public enum PersistenceMode {
+    SNAPSHOT,
+    JOURNAL,
+    WRITE_BEHIND,
+    SLOTTED
+}
@@ -0,0 +1,38 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.util.List;
+
+// Согласованный срез всех коллекций и истории на момент одной версии
+public class TaskSnapshot {
+    private final List<Task> tasks;
+    private final List<Epic> epics;
+    private final List<Subtask> subtasks;
+    private final List<Task> history;
+
+    public TaskSnapshot(List<Task> tasks, List<Epic> epics, List<Subtask> subtasks, List<Task> history) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.history = history;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public List<Epic> getEpics() {
+        return epics;
+    }
+
+    public List<Subtask> getSubtasks() {
+        return subtasks;
+    }
+
+    public List<Task> getHistory() {
+        return history;
+    }
+}
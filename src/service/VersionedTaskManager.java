@@ -0,0 +1,425 @@
+package service;
+
+import exception.NotFoundException;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Status;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+import storage.PersistentIntMap;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Менеджер с многоверсионным чтением: после каждого изменения под монитором публикуется новая
+// неизменяемая версия из копий затронутых объектов. getAll* и getSubtaskByEpicId берут текущую
+// версию одной volatile-ссылкой и обходят её без блокировок и копирования; объекты версии —
+// отдельные копии, поэтому последующие изменения менеджера их не затрагивают.
+public class VersionedTaskManager extends InMemoryTaskManager {
+    private volatile Version version = new Version(PersistentIntMap.empty(), PersistentIntMap.empty(),
+            PersistentIntMap.empty());
+    private boolean publishingEpics = true;
+    // Версия, накапливаемая внутри транзакции: читатели видят её только после фиксации
+    private Version draft;
+
+    private static final class Version {
+        final PersistentIntMap<Task> tasks;
+        final PersistentIntMap<Epic> epics;
+        final PersistentIntMap<Subtask> subtasks;
+
+        Version(PersistentIntMap<Task> tasks, PersistentIntMap<Epic> epics, PersistentIntMap<Subtask> subtasks) {
+            this.tasks = tasks;
+            this.epics = epics;
+            this.subtasks = subtasks;
+        }
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return version.tasks.values();
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return version.epics.values();
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return version.subtasks.values();
+    }
+
+    @Override
+    public List<Task> getTasksPage(int after, int limit) {
+        return version.tasks.valuesAfter(after, limit);
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int after, int limit) {
+        return version.epics.valuesAfter(after, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int after, int limit) {
+        return version.subtasks.valuesAfter(after, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtaskByEpicId(int id) {
+        Version current = version;
+        Epic epic = current.epics.get(id);
+
+        if (epic == null) throw new NotFoundException("Объекта с ID " + id + " не существует");
+
+        List<Subtask> result = new ArrayList<>(epic.getSubtasksId().size());
+        for (Integer sId : epic.getSubtasksId()) {
+            result.add(current.subtasks.get(sId));
+        }
+
+        return result;
+    }
+
+    @Override
+    public Task findById(int id) {
+        Version current = version;
+        Task task = current.tasks.get(id);
+        if (task == null) task = current.epics.get(id);
+        if (task == null) task = current.subtasks.get(id);
+
+        return task;
+    }
+
+    @Override
+    public TaskType getTypeById(int id) {
+        Task task = findById(id);
+        return task != null ? task.getType() : null;
+    }
+
+    // История и коллекции фиксируются атомарно; элементы истории берутся из той же версии
+    public synchronized TaskSnapshot snapshot() {
+        Version current = version;
+        List<Task> history = new ArrayList<>();
+
+        for (Task task : super.getHistory()) {
+            Task copy = switch (task.getType()) {
+                case TASK -> current.tasks.get(task.getId());
+                case EPIC -> current.epics.get(task.getId());
+                case SUBTASK -> current.subtasks.get(task.getId());
+            };
+            if (copy != null) history.add(copy);
+        }
+
+        return new TaskSnapshot(current.tasks.values(), current.epics.values(), current.subtasks.values(),
+                Collections.unmodifiableList(history));
+    }
+
+    @Override
+    public synchronized Task getTaskById(int id) {
+        return super.getTaskById(id);
+    }
+
+    @Override
+    public synchronized Epic getEpicById(int id) {
+        return super.getEpicById(id);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id) {
+        return super.getSubtaskById(id);
+    }
+
+    @Override
+    public synchronized List<Task> query(TaskType type, Status status, Integer epicId) {
+        return super.query(type, status, epicId);
+    }
+
+    @Override
+    public synchronized List<Task> search(String query, int limit) {
+        return super.search(query, limit);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return super.getHistory();
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        runOperation(() -> {
+            super.deleteAllTasks();
+            Version current = working();
+            publish(new Version(PersistentIntMap.empty(), current.epics, current.subtasks));
+        });
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        runOperation(() -> {
+            super.deleteAllEpics();
+            publish(new Version(working().tasks, PersistentIntMap.empty(), PersistentIntMap.empty()));
+        });
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        runOperation(() -> {
+            withoutEpicPublishing(() -> super.deleteAllSubtasks());
+
+            Version current = working();
+            PersistentIntMap<Epic> publishedEpics = current.epics;
+            for (Epic epic : epics.values()) {
+                publishedEpics = publishedEpics.put(epic.getId(), copyOf(epic));
+            }
+            publish(new Version(current.tasks, publishedEpics, PersistentIntMap.empty()));
+        });
+    }
+
+    @Override
+    public synchronized void createTask(Task task) {
+        runOperation(() -> {
+            super.createTask(task);
+            publishTask(task.getId());
+        });
+    }
+
+    @Override
+    public synchronized void createEpic(Epic epic) {
+        runOperation(() -> {
+            super.createEpic(epic);
+            publishEpic(epic.getId());
+        });
+    }
+
+    @Override
+    public synchronized void createSubtask(Subtask subtask) {
+        runOperation(() -> {
+            withoutEpicPublishing(() -> super.createSubtask(subtask));
+            publishSubtask(subtask.getId(), subtask.getEpicId());
+        });
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        runOperation(() -> {
+            super.updateTask(task);
+            publishTask(task.getId());
+        });
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        runOperation(() -> {
+            super.updateEpic(epic);
+            publishEpic(epic.getId());
+        });
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        runOperation(() -> {
+            Subtask previous = subtasks.get(subtask != null ? subtask.getId() : 0);
+
+            withoutEpicPublishing(() -> super.updateSubtask(subtask));
+            if (previous != null && previous.getEpicId() != subtask.getEpicId()) {
+                publishEpic(previous.getEpicId());
+            }
+            publishSubtask(subtask.getId(), subtask.getEpicId());
+        });
+    }
+
+    @Override
+    public synchronized void deleteTaskById(int id) {
+        runOperation(() -> {
+            super.deleteTaskById(id);
+            Version current = working();
+            publish(new Version(current.tasks.remove(id), current.epics, current.subtasks));
+        });
+    }
+
+    @Override
+    public synchronized void deleteEpicById(int id) {
+        runOperation(() -> {
+            List<Integer> subtaskIds = epics.containsKey(id) ? new ArrayList<>(epics.get(id).getSubtasksId()) : List.of();
+
+            super.deleteEpicById(id);
+
+            Version current = working();
+            PersistentIntMap<Subtask> publishedSubtasks = current.subtasks;
+            for (Integer sId : subtaskIds) {
+                publishedSubtasks = publishedSubtasks.remove(sId);
+            }
+            publish(new Version(current.tasks, current.epics.remove(id), publishedSubtasks));
+        });
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(int id) {
+        runOperation(() -> {
+            int epicId = subtasks.containsKey(id) ? subtasks.get(id).getEpicId() : 0;
+
+            withoutEpicPublishing(() -> super.deleteSubtaskById(id));
+
+            Version current = working();
+            publish(new Version(current.tasks, current.epics.put(epicId, copyOf(epics.get(epicId))),
+                    current.subtasks.remove(id)));
+        });
+    }
+
+    @Override
+    public synchronized void createAll(List<? extends Task> items) {
+        runOperation(() -> {
+            withoutEpicPublishing(() -> super.createAll(items));
+            publishAll(touchedBy(items));
+        });
+    }
+
+    @Override
+    public synchronized void updateAll(List<? extends Task> items) {
+        runOperation(() -> {
+            Set<Integer> touched = new HashSet<>();
+            if (items != null) {
+                for (Task item : items) {
+                    Subtask previous = item != null ? subtasks.get(item.getId()) : null;
+                    if (previous != null) touched.add(previous.getEpicId());
+                }
+            }
+
+            withoutEpicPublishing(() -> super.updateAll(items));
+            touched.addAll(touchedBy(items));
+            publishAll(touched);
+        });
+    }
+
+    // Поиск слота и применение выполняются под одной блокировкой, чтобы найденное время не заняли
+    @Override
+    public synchronized void scheduleAll(List<? extends Task> items, LocalDateTime notBefore, LocalDateTime notAfter) {
+        super.scheduleAll(items, notBefore, notAfter);
+    }
+
+    @Override
+    public synchronized void deleteAll(List<Integer> ids) {
+        runOperation(() -> {
+            Set<Integer> touched = new HashSet<>();
+            if (ids != null) {
+                for (Integer id : ids) {
+                    if (id == null) continue;
+
+                    touched.add(id);
+                    if (epics.containsKey(id)) touched.addAll(epics.get(id).getSubtasksId());
+                    if (subtasks.containsKey(id)) touched.add(subtasks.get(id).getEpicId());
+                }
+            }
+
+            withoutEpicPublishing(() -> super.deleteAll(ids));
+            publishAll(touched);
+        });
+    }
+
+    @Override
+    public synchronized void updateEpicStatus(Epic epic) {
+        runOperation(() -> {
+            super.updateEpicStatus(epic);
+            if (publishingEpics && epics.get(epic.getId()) == epic) {
+                publishEpic(epic.getId());
+            }
+        });
+    }
+
+    // Операции с подзадачами пересчитывают статус эпика внутри и публикуют эпик вместе с подзадачей,
+    // чтобы читатели не увидели эпик, ссылающийся на ещё не опубликованную подзадачу
+    private void withoutEpicPublishing(Runnable action) {
+        publishingEpics = false;
+        try {
+            action.run();
+        } finally {
+            publishingEpics = true;
+        }
+    }
+
+    @Override
+    protected void beginTransaction() {
+        super.beginTransaction();
+        draft = version;
+    }
+
+    @Override
+    protected void commitTransaction() {
+        version = draft;
+        draft = null;
+        super.commitTransaction();
+    }
+
+    // Откат возвращает объекты в состояние, которое уже опубликовано, поэтому черновик просто отбрасывается
+    @Override
+    protected void rollbackTransaction() {
+        super.rollbackTransaction();
+        draft = null;
+    }
+
+    @Override
+    public synchronized void inTransaction(Consumer<TaskManager> work) {
+        super.inTransaction(work);
+    }
+
+    private Version working() {
+        return draft != null ? draft : version;
+    }
+
+    private void publish(Version next) {
+        if (draft != null) {
+            draft = next;
+        } else {
+            version = next;
+        }
+    }
+
+    private static Set<Integer> touchedBy(List<? extends Task> items) {
+        Set<Integer> touched = new HashSet<>();
+        for (Task item : items) {
+            touched.add(item.getId());
+            if (item.getType() == TaskType.SUBTASK) touched.add(((Subtask) item).getEpicId());
+        }
+
+        return touched;
+    }
+
+    // Весь пакет публикуется одной версией: читатели видят его целиком или не видят вовсе
+    private void publishAll(Set<Integer> ids) {
+        Version current = working();
+        PersistentIntMap<Task> publishedTasks = current.tasks;
+        PersistentIntMap<Epic> publishedEpics = current.epics;
+        PersistentIntMap<Subtask> publishedSubtasks = current.subtasks;
+
+        for (int id : ids) {
+            publishedTasks = tasks.containsKey(id)
+                    ? publishedTasks.put(id, copyOf(tasks.get(id))) : publishedTasks.remove(id);
+            publishedEpics = epics.containsKey(id)
+                    ? publishedEpics.put(id, copyOf(epics.get(id))) : publishedEpics.remove(id);
+            publishedSubtasks = subtasks.containsKey(id)
+                    ? publishedSubtasks.put(id, copyOf(subtasks.get(id))) : publishedSubtasks.remove(id);
+        }
+        publish(new Version(publishedTasks, publishedEpics, publishedSubtasks));
+    }
+
+    private void publishTask(int id) {
+        Version current = working();
+        publish(new Version(current.tasks.put(id, copyOf(tasks.get(id))), current.epics, current.subtasks));
+    }
+
+    private void publishEpic(int id) {
+        Version current = working();
+        publish(new Version(current.tasks, current.epics.put(id, copyOf(epics.get(id))), current.subtasks));
+    }
+
+    private void publishSubtask(int id, int epicId) {
+        Version current = working();
+        publish(new Version(current.tasks, current.epics.put(epicId, copyOf(epics.get(epicId))),
+                current.subtasks.put(id, copyOf(subtasks.get(id)))));
+    }
+}
@@ -0,0 +1,239 @@
+package storage;
+
+import model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class BinarySnapshotCodec {
+    private static final byte[] MAGIC = {'K', 'B', 'S', 'N'};
+    private static final int VERSION = 1;
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    private static final int TIME_NULL = 0;
+    private static final int TIME_MINUTES = 1;
+    private static final int TIME_EXACT = 2;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private byte[] buffer = new byte[FLUSH_THRESHOLD * 2];
+    private int position;
+
+    public static boolean isBinary(File file) throws IOException {
+        if (!file.exists() || file.length() < MAGIC.length) return false;
+
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    public void write(File file, List<Task> image) throws IOException {
+        write(file, image, false);
+    }
+
+    public void write(File file, List<Task> image, boolean force) throws IOException {
+        position = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ensure(MAGIC.length + 1);
+            System.arraycopy(MAGIC, 0, buffer, position, MAGIC.length);
+            position += MAGIC.length;
+            buffer[position++] = VERSION;
+            writeVarLong(image.size());
+
+            for (Task task : image) {
+                writeTask(task);
+
+                if (position >= FLUSH_THRESHOLD) {
+                    flush(channel);
+                }
+            }
+
+            flush(channel);
+
+            if (force) {
+                channel.force(true);
+            }
+        }
+    }
+
+    public static void read(File file, Consumer<Task> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("Неверный формат снимка");
+            if (in.get() != VERSION) throw new IOException("Неподдерживаемая версия снимка");
+
+            long count = readVarLong(in);
+            byte[] scratch = new byte[256];
+
+            for (long i = 0; i < count; i++) {
+                TaskType type = TYPES[in.get()];
+                int id = (int) readVarLong(in);
+                Status status = STATUSES[in.get()];
+
+                int nameLength = (int) readVarLong(in) - 1;
+                if (nameLength > scratch.length) scratch = new byte[nameLength];
+                String name = readString(in, nameLength, scratch);
+
+                int descriptionLength = (int) readVarLong(in) - 1;
+                if (descriptionLength > scratch.length) scratch = new byte[descriptionLength];
+                String description = readString(in, descriptionLength, scratch);
+
+                int epicId = type == TaskType.SUBTASK ? (int) readVarLong(in) : 0;
+                long minutes = readVarLong(in);
+                Duration duration = minutes == 0 ? null : Duration.ofMinutes(minutes - 1);
+                LocalDateTime startTime = readTime(in);
+
+                switch (type) {
+                    case TASK:
+                        consumer.accept(new Task(name, description, id, status, duration, startTime));
+                        break;
+                    case EPIC:
+                        Epic epic = new Epic(name, description, id);
+                        epic.setStatus(status);
+                        consumer.accept(epic);
+                        break;
+                    case SUBTASK:
+                        consumer.accept(new Subtask(name, description, id, status, epicId, duration, startTime));
+                        break;
+                }
+            }
+        }
+    }
+
+    private void writeTask(Task task) {
+        ensure(2);
+        buffer[position++] = (byte) task.getType().ordinal();
+        writeVarLong(task.getId());
+        ensure(1);
+        buffer[position++] = (byte) task.getStatus().ordinal();
+        writeString(task.getName());
+        writeString(task.getDescription());
+
+        if (task.getType() == TaskType.SUBTASK) {
+            writeVarLong(((Subtask) task).getEpicId());
+        }
+
+        writeVarLong(task.getDuration() != null ? task.getDuration().toMinutes() + 1 : 0);
+        writeTime(task.getStartTime());
+    }
+
+    private void writeTime(LocalDateTime time) {
+        ensure(1);
+
+        if (time == null) {
+            buffer[position++] = TIME_NULL;
+            return;
+        }
+
+        long epochSecond = time.toEpochSecond(ZoneOffset.UTC);
+
+        if (epochSecond % 60 == 0 && time.getNano() == 0) {
+            buffer[position++] = TIME_MINUTES;
+            writeVarLong(zigZag(epochSecond / 60));
+        } else {
+            buffer[position++] = TIME_EXACT;
+            writeVarLong(zigZag(epochSecond));
+            writeVarLong(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(ByteBuffer in) {
+        switch (in.get()) {
+            case TIME_MINUTES:
+                return LocalDateTime.ofEpochSecond(unZigZag(readVarLong(in)) * 60, 0, ZoneOffset.UTC);
+            case TIME_EXACT:
+                long epochSecond = unZigZag(readVarLong(in));
+                return LocalDateTime.ofEpochSecond(epochSecond, (int) readVarLong(in), ZoneOffset.UTC);
+            default:
+                return null;
+        }
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private static String readString(ByteBuffer in, int length, byte[] scratch) {
+        if (length < 0) return null;
+
+        in.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void writeVarLong(long value) {
+        ensure(10);
+
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        buffer[position++] = (byte) value;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return result;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void ensure(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+
+    private void flush(FileChannel channel) throws IOException {
+        ByteBuffer out = ByteBuffer.wrap(buffer, 0, position);
+
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+
+        position = 0;
+    }
+}
@@ -0,0 +1,374 @@
+package storage;
+
+import model.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Строковые поля с запятой, кавычкой, переводом строки или обратной косой чертой пишутся в кавычках;
+// перевод строки внутри кавычек экранируется, поэтому каждая запись всегда занимает ровно одну строку.
+// Незакавыченное null означает отсутствующее значение.
+public class CsvTaskCodec {
+    public static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final String NULL = "null";
+
+    private final StringBuilder field = new StringBuilder();
+    private CharSequence text;
+    private int position;
+    private int end;
+
+    // Читает записи из потока блоками в переиспользуемый буфер без создания строки на каждую запись;
+    // первая строка считается заголовком, пустая строка завершает данные
+    public void readAll(Reader reader, Consumer<Task> consumer) throws IOException {
+        char[] buffer = new char[8192];
+        CharBuffer view = CharBuffer.wrap(buffer);
+        int length = 0;
+        int lineStart = 0;
+        boolean header = true;
+
+        while (true) {
+            int lineEnd = indexOf(buffer, '\n', lineStart, length);
+
+            if (lineEnd < 0) {
+                if (lineStart > 0) {
+                    System.arraycopy(buffer, lineStart, buffer, 0, length - lineStart);
+                    length -= lineStart;
+                    lineStart = 0;
+                } else if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    view = CharBuffer.wrap(buffer);
+                }
+
+                int read = reader.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    if (length > lineStart && !header) {
+                        decodeLine(view, lineStart, length, consumer);
+                    }
+                    return;
+                }
+
+                length += read;
+                continue;
+            }
+
+            if (header) {
+                header = false;
+            } else if (!decodeLine(view, lineStart, lineEnd, consumer)) {
+                return;
+            }
+
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private boolean decodeLine(CharBuffer view, int start, int end, Consumer<Task> consumer) {
+        if (end > start && view.get(end - 1) == '\r') end--;
+        if (end == start) return false;
+
+        consumer.accept(decode(view, start, end));
+        return true;
+    }
+
+    private static int indexOf(char[] buffer, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c) return i;
+        }
+
+        return -1;
+    }
+
+    public Task decode(CharSequence line) {
+        return decode(line, 0, line.length());
+    }
+
+    public Task decode(CharSequence line, int start, int end) {
+        this.text = line;
+        this.position = start;
+        this.end = end;
+
+        int id = (int) nextLong(0);
+        TaskType type = TYPES[nextConstant(TYPES)];
+        String name = nextString();
+        Status status = STATUSES[nextConstant(STATUSES)];
+        String description = nextString();
+        int epicId = (int) nextLong(0);
+        Duration duration = Duration.ofMinutes(nextLong(0));
+        LocalDateTime startTime = nextTime();
+
+        this.text = null;
+
+        switch (type) {
+            case TASK:
+                return new Task(name, description, id, status, duration, startTime);
+            case EPIC:
+                Epic epic = new Epic(name, description, id);
+                epic.setStatus(status);
+                return epic;
+            default:
+                return new Subtask(name, description, id, status, epicId, duration, startTime);
+        }
+    }
+
+    public void encode(Task task, StringBuilder out) {
+        out.append(task.getId()).append(',')
+                .append(task.getType().name()).append(',');
+        appendString(task.getName(), out);
+        out.append(',').append(task.getStatus().name()).append(',');
+        appendString(task.getDescription(), out);
+        out.append(',');
+
+        if (task.getType() == TaskType.SUBTASK) {
+            out.append(((Subtask) task).getEpicId());
+        }
+        out.append(',');
+
+        if (task.getDuration() != null) {
+            out.append(task.getDuration().toMinutes());
+        }
+        out.append(',');
+
+        if (task.getStartTime() != null) {
+            appendTime(task.getStartTime(), out);
+        }
+    }
+
+    public String encode(Task task) {
+        StringBuilder out = new StringBuilder(64);
+        encode(task, out);
+
+        return out.toString();
+    }
+
+    private long nextLong(long defaultValue) {
+        if (position >= end) return defaultValue;
+
+        boolean negative = text.charAt(position) == '-';
+        if (negative) position++;
+
+        long value = 0;
+        boolean digits = false;
+        char c;
+
+        while (position < end && (c = text.charAt(position)) != ',') {
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Некорректное число в позиции " + position);
+
+            value = value * 10 + (c - '0');
+            digits = true;
+            position++;
+        }
+
+        position++;
+
+        if (!digits) return defaultValue;
+
+        return negative ? -value : value;
+    }
+
+    private <E extends Enum<E>> int nextConstant(E[] constants) {
+        int start = position;
+        int fieldEnd = start;
+
+        while (fieldEnd < end && text.charAt(fieldEnd) != ',') {
+            fieldEnd++;
+        }
+
+        position = fieldEnd + 1;
+
+        for (E constant : constants) {
+            if (regionEquals(start, fieldEnd, constant.name())) return constant.ordinal();
+        }
+
+        throw new IllegalArgumentException("Неизвестное значение " + text.subSequence(start, fieldEnd));
+    }
+
+    private String nextString() {
+        if (position < end && text.charAt(position) == '"') {
+            field.setLength(0);
+            position++;
+
+            while (position < end) {
+                char c = text.charAt(position++);
+
+                if (c == '"') {
+                    if (position < end && text.charAt(position) == '"') {
+                        field.append('"');
+                        position++;
+                    } else {
+                        break;
+                    }
+                } else if (c == '\\' && position < end) {
+                    char escaped = text.charAt(position++);
+                    field.append(escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+                } else {
+                    field.append(c);
+                }
+            }
+
+            position++;
+            return field.toString();
+        }
+
+        int start = position;
+        int fieldEnd = start;
+
+        while (fieldEnd < end && text.charAt(fieldEnd) != ',') {
+            fieldEnd++;
+        }
+
+        position = fieldEnd + 1;
+
+        if (regionEquals(start, fieldEnd, NULL)) return null;
+
+        return text.subSequence(start, fieldEnd).toString();
+    }
+
+    private LocalDateTime nextTime() {
+        int start = position;
+        int fieldEnd = start;
+
+        while (fieldEnd < end && text.charAt(fieldEnd) != ',') {
+            fieldEnd++;
+        }
+
+        position = fieldEnd + 1;
+
+        if (fieldEnd == start) return null;
+
+        int length = fieldEnd - start;
+        if (length < 16 || text.charAt(start + 4) != '-' || text.charAt(start + 10) != 'T') {
+            return LocalDateTime.parse(text.subSequence(start, fieldEnd));
+        }
+
+        int year = digits(start, 4);
+        int month = digits(start + 5, 2);
+        int day = digits(start + 8, 2);
+        int hour = digits(start + 11, 2);
+        int minute = digits(start + 14, 2);
+        int second = 0;
+        int nano = 0;
+
+        if (length >= 19) {
+            second = digits(start + 17, 2);
+        }
+
+        if (length > 20) {
+            int fractionDigits = length - 20;
+            nano = digits(start + 20, fractionDigits);
+            for (int i = fractionDigits; i < 9; i++) {
+                nano *= 10;
+            }
+        }
+
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private int digits(int from, int count) {
+        int value = 0;
+
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Некорректная дата в позиции " + i);
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    private boolean regionEquals(int start, int fieldEnd, String value) {
+        if (fieldEnd - start != value.length()) return false;
+
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(start + i) != value.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+    private static void appendString(String value, StringBuilder out) {
+        if (value == null) {
+            out.append(NULL);
+            return;
+        }
+
+        if (!needsQuotes(value)) {
+            out.append(value);
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    out.append("\"\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (value.equals(NULL) || (!value.isEmpty() && value.charAt(0) == '"')) return true;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '\n' || c == '\r' || c == '\\') return true;
+        }
+
+        return false;
+    }
+
+    private static void appendTime(LocalDateTime time, StringBuilder out) {
+        if (time.getYear() < 1000 || time.getYear() > 9999) {
+            out.append(time);
+            return;
+        }
+
+        out.append(time.getYear()).append('-');
+        appendTwoDigits(time.getMonthValue(), out);
+        out.append('-');
+        appendTwoDigits(time.getDayOfMonth(), out);
+        out.append('T');
+        appendTwoDigits(time.getHour(), out);
+        out.append(':');
+        appendTwoDigits(time.getMinute(), out);
+        out.append(':');
+        appendTwoDigits(time.getSecond(), out);
+
+        int nano = time.getNano();
+        if (nano != 0) {
+            out.append('.');
+            int divisor = 100_000_000;
+            while (nano != 0) {
+                out.append((char) ('0' + nano / divisor));
+                nano %= divisor;
+                divisor /= 10;
+            }
+        }
+    }
+
+    private static void appendTwoDigits(int value, StringBuilder out) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,7 @@
+package storage;
+
+public enum Durability {
+    NONE,
+    BATCHED,
+    SYNC
+}
@@ -0,0 +1,316 @@
+package storage;
+
+import model.Task;
+import model.TaskType;
+
+import java.util.*;
+
+// Единая таблица сущностей, индексированная id. Id выдаются последовательно, поэтому таблица хранится
+// страницами плотных массивов: поиск по id — обращение к странице и ячейке, тип определяется по байтовой
+// метке без загрузки объекта, обход идёт подряд по памяти. Удалённая ячейка становится надгробием,
+// а страница, на которой не осталось живых записей, сразу освобождается — id при этом не меняются.
+public class EntityTable {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final TaskType[] TYPES = TaskType.values();
+
+    private Task[][] pages = new Task[16][];
+    private byte[][] tags = new byte[16][];
+    // Число живых записей каждого типа на каждой странице: pageCounts[page * TYPES.length + type]
+    private int[] pageCounts = new int[16 * TYPES.length];
+    private final int[] typeCounts = new int[TYPES.length];
+    private int allocatedPages;
+    private int modCount;
+
+    public Task get(int id) {
+        int page = id >>> PAGE_BITS;
+        if (page >= pages.length || pages[page] == null) return null;
+
+        return pages[page][id & PAGE_MASK];
+    }
+
+    public TaskType typeOf(int id) {
+        int page = id >>> PAGE_BITS;
+        if (page >= tags.length || tags[page] == null) return null;
+
+        int tag = tags[page][id & PAGE_MASK];
+        return tag != 0 ? TYPES[tag - 1] : null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (int count : typeCounts) {
+            size += count;
+        }
+
+        return size;
+    }
+
+    public int size(TaskType type) {
+        return typeCounts[type.ordinal()];
+    }
+
+    public int getAllocatedPages() {
+        return allocatedPages;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Task> View<T> view(TaskType type) {
+        return (View<T>) new View<>(type);
+    }
+
+    private Task put(TaskType type, int id, Task task) {
+        if (id < 0) throw new IllegalArgumentException("Некорректный ID " + id);
+        if (task == null) throw new IllegalArgumentException("Передан null объект");
+
+        TaskType current = typeOf(id);
+        if (current != null && current != type) {
+            throw new IllegalArgumentException("ID " + id + " уже занят объектом типа " + current);
+        }
+
+        int page = id >>> PAGE_BITS;
+        int offset = id & PAGE_MASK;
+        ensurePage(page);
+
+        Task previous = pages[page][offset];
+        pages[page][offset] = task;
+        if (current == null) {
+            tags[page][offset] = (byte) (type.ordinal() + 1);
+            pageCounts[page * TYPES.length + type.ordinal()]++;
+            typeCounts[type.ordinal()]++;
+            modCount++;
+        }
+
+        return previous;
+    }
+
+    private Task remove(TaskType type, int id) {
+        if (id < 0 || typeOf(id) != type) return null;
+
+        int page = id >>> PAGE_BITS;
+        int offset = id & PAGE_MASK;
+        Task previous = pages[page][offset];
+
+        pages[page][offset] = null;
+        tags[page][offset] = 0;
+        pageCounts[page * TYPES.length + type.ordinal()]--;
+        typeCounts[type.ordinal()]--;
+        modCount++;
+        releaseIfEmpty(page);
+
+        return previous;
+    }
+
+    private void clear(TaskType type) {
+        for (int page = 0; page < pages.length; page++) {
+            if (pages[page] == null || pageCounts[page * TYPES.length + type.ordinal()] == 0) continue;
+
+            byte tag = (byte) (type.ordinal() + 1);
+            for (int offset = 0; offset < PAGE_SIZE; offset++) {
+                if (tags[page][offset] == tag) {
+                    pages[page][offset] = null;
+                    tags[page][offset] = 0;
+                }
+            }
+            pageCounts[page * TYPES.length + type.ordinal()] = 0;
+            releaseIfEmpty(page);
+        }
+
+        typeCounts[type.ordinal()] = 0;
+        modCount++;
+    }
+
+    private void ensurePage(int page) {
+        if (page >= pages.length) {
+            int length = Math.max(pages.length << 1, page + 1);
+            pages = Arrays.copyOf(pages, length);
+            tags = Arrays.copyOf(tags, length);
+            pageCounts = Arrays.copyOf(pageCounts, length * TYPES.length);
+        }
+
+        if (pages[page] == null) {
+            pages[page] = new Task[PAGE_SIZE];
+            tags[page] = new byte[PAGE_SIZE];
+            allocatedPages++;
+        }
+    }
+
+    private void releaseIfEmpty(int page) {
+        for (int type = 0; type < TYPES.length; type++) {
+            if (pageCounts[page * TYPES.length + type] != 0) return;
+        }
+
+        pages[page] = null;
+        tags[page] = null;
+        allocatedPages--;
+    }
+
+    // Представление записей одного типа в виде Map: get и containsKey за одно обращение к странице,
+    // обход пропускает страницы без записей этого типа
+    public class View<T extends Task> extends AbstractMap<Integer, T> {
+        private final TaskType type;
+
+        private View(TaskType type) {
+            this.type = type;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(int id) {
+            return typeOf(id) == type ? (T) EntityTable.this.get(id) : null;
+        }
+
+        public boolean containsKey(int id) {
+            return typeOf(id) == type;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T put(int id, T value) {
+            return (T) EntityTable.this.put(type, id, value);
+        }
+
+        @SuppressWarnings("unchecked")
+        public T remove(int id) {
+            return (T) EntityTable.this.remove(type, id);
+        }
+
+        @Override
+        public T get(Object key) {
+            return key instanceof Integer ? get((int) (Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && containsKey((int) (Integer) key);
+        }
+
+        @Override
+        public T put(Integer key, T value) {
+            return put((int) key, value);
+        }
+
+        @Override
+        public T remove(Object key) {
+            return key instanceof Integer ? remove((int) (Integer) key) : null;
+        }
+
+        @Override
+        public int size() {
+            return typeCounts[type.ordinal()];
+        }
+
+        @Override
+        public void clear() {
+            EntityTable.this.clear(type);
+        }
+
+        // Не больше limit записей с id больше after в порядке id: обход начинается сразу с нужной страницы
+        public List<T> valuesAfter(int after, int limit) {
+            if (limit <= 0) throw new IllegalArgumentException("Лимит должен быть положительным");
+
+            List<T> page = new ArrayList<>(Math.min(limit, size()));
+            Iterator<T> iterator = new TypeIterator<>(type, after < Integer.MAX_VALUE ? after + 1 : after) {
+                @Override
+                @SuppressWarnings("unchecked")
+                T at(int id) {
+                    return (T) EntityTable.this.get(id);
+                }
+            };
+            while (page.size() < limit && iterator.hasNext()) {
+                page.add(iterator.next());
+            }
+
+            return page;
+        }
+
+        @Override
+        public Collection<T> values() {
+            return new AbstractCollection<>() {
+                @Override
+                public Iterator<T> iterator() {
+                    return new TypeIterator<>(type) {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        T at(int id) {
+                            return (T) EntityTable.this.get(id);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return View.this.size();
+                }
+            };
+        }
+
+        @Override
+        public Set<Entry<Integer, T>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, T>> iterator() {
+                    return new TypeIterator<>(type) {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        Entry<Integer, T> at(int id) {
+                            return new SimpleImmutableEntry<>(id, (T) EntityTable.this.get(id));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return View.this.size();
+                }
+            };
+        }
+    }
+
+    private abstract class TypeIterator<E> implements Iterator<E> {
+        private final int expectedModCount = modCount;
+        private final int typeIndex;
+        private final byte tag;
+        private int next;
+
+        TypeIterator(TaskType type) {
+            this(type, 0);
+        }
+
+        TypeIterator(TaskType type, int from) {
+            this.typeIndex = type.ordinal();
+            this.tag = (byte) (type.ordinal() + 1);
+            this.next = advance(Math.max(from, 0));
+        }
+
+        abstract E at(int id);
+
+        private int advance(int id) {
+            while ((id >>> PAGE_BITS) < pages.length) {
+                int page = id >>> PAGE_BITS;
+                if (pages[page] == null || pageCounts[page * TYPES.length + typeIndex] == 0) {
+                    id = (page + 1) << PAGE_BITS;
+                    continue;
+                }
+                if (tags[page][id & PAGE_MASK] == tag) return id;
+                id++;
+            }
+
+            return -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (next < 0) throw new NoSuchElementException();
+
+            E result = at(next);
+            next = advance(next + 1);
+            return result;
+        }
+    }
+}
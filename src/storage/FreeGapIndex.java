@@ -0,0 +1,308 @@
+package storage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Индекс свободного времени между занятыми интервалами. Пересекающиеся и касающиеся интервалы
+// сливаются в блоки; свободный промежуток — время между концом блока и началом следующего.
+// Блоки упорядочены по началу в AVL-дереве, дополненном максимальным промежутком в поддереве,
+// поэтому первый промежуток после заданного момента, вмещающий задачу, находится за O(log n).
+// Время хранится в секундах, границы округляются наружу: найденный слот не пересечётся с занятым.
+// Интервалы замкнутые, как и в IntervalTree, а начало слота выравнивается на целую минуту
+public class FreeGapIndex {
+    private static final long STEP_SECONDS = 60;
+
+    private final Map<Integer, long[]> intervals = new HashMap<>();
+    private final TreeMap<Long, Block> blocks = new TreeMap<>();
+    private GapNode root;
+
+    private static final class Block {
+        final long start;
+        final long end;
+        final List<Integer> ids;
+
+        Block(long start, long end, List<Integer> ids) {
+            this.start = start;
+            this.end = end;
+            this.ids = ids;
+        }
+    }
+
+    // Узел дерева промежутков: ключ — начало блока, gap — свободное время перед ним
+    private static final class GapNode {
+        final long key;
+        long gap;
+        long maxGap;
+        int height = 1;
+        GapNode left;
+        GapNode right;
+
+        GapNode(long key, long gap) {
+            this.key = key;
+            this.gap = gap;
+            this.maxGap = gap;
+        }
+    }
+
+    public void add(int id, LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) throw new IllegalArgumentException("У задачи не задано время начала");
+
+        remove(id);
+        long from = floorSeconds(start);
+        long to = Math.max(ceilSeconds(end), from);
+        intervals.put(id, new long[]{from, to});
+
+        List<Integer> ids = new ArrayList<>();
+        ids.add(id);
+        Map.Entry<Long, Block> floor = blocks.floorEntry(from);
+        if (floor != null && floor.getValue().end >= from) from = floor.getKey();
+
+        // Поглощаются все блоки, начинающиеся внутри нового интервала или касающиеся его
+        for (Block block : new ArrayList<>(blocks.subMap(from, true, to, true).values())) {
+            to = Math.max(to, block.end);
+            ids.addAll(block.ids);
+            removeBlock(block);
+        }
+        putBlock(new Block(from, to, ids));
+    }
+
+    public boolean remove(int id) {
+        long[] interval = intervals.remove(id);
+        if (interval == null) return false;
+
+        Block block = blocks.floorEntry(interval[0]).getValue();
+        removeBlock(block);
+        block.ids.remove((Integer) id);
+        if (block.ids.isEmpty()) return true;
+
+        // Блок из нескольких интервалов собирается заново: без удалённого он может распасться на части
+        List<long[]> rest = new ArrayList<>(block.ids.size());
+        for (Integer other : block.ids) {
+            long[] otherInterval = intervals.get(other);
+            rest.add(new long[]{otherInterval[0], otherInterval[1], other});
+        }
+        rest.sort(Comparator.comparingLong(item -> item[0]));
+
+        long from = rest.getFirst()[0];
+        long to = rest.getFirst()[1];
+        List<Integer> ids = new ArrayList<>();
+        for (long[] item : rest) {
+            if (item[0] > to) {
+                putBlock(new Block(from, to, ids));
+                from = item[0];
+                ids = new ArrayList<>();
+            }
+            to = Math.max(to, item[1]);
+            ids.add((int) item[2]);
+        }
+        putBlock(new Block(from, to, ids));
+
+        return true;
+    }
+
+    public void clear() {
+        intervals.clear();
+        blocks.clear();
+        root = null;
+    }
+
+    public int size() {
+        return intervals.size();
+    }
+
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    // Самое раннее начало, выровненное на минуту, не раньше notBefore, при котором интервал длины duration
+    // не касается занятых и заканчивается не позже notAfter (null — без ограничения); null, если места нет
+    public LocalDateTime findEarliest(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter) {
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Длительность должна быть неотрицательной");
+        }
+        if (notBefore == null) throw new IllegalArgumentException("Не задано начало интервала");
+
+        long length = duration.getSeconds() + (duration.getNano() > 0 ? 1 : 0);
+        long deadline = notAfter != null ? floorSeconds(notAfter) : Long.MAX_VALUE;
+        long earliest = align(ceilSeconds(notBefore));
+
+        // Промежуток перед первым блоком, начинающимся позже earliest, может быть урезан слева моментом earliest
+        Map.Entry<Long, Block> next = blocks.higherEntry(earliest);
+        while (true) {
+            Map.Entry<Long, Block> previous = next != null ? blocks.lowerEntry(next.getKey()) : blocks.lastEntry();
+            long start = earliest;
+            if (previous != null && previous.getValue().end >= start) start = align(previous.getValue().end + 1);
+            if (start > deadline || deadline - start < length) return null;
+
+            if (next == null || next.getKey() - start > length) {
+                return LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC);
+            }
+
+            // Дальше подходят только промежутки длиннее задачи; выравнивание может не дать занять и такой,
+            // тогда поиск продолжается со следующего
+            GapNode node = firstGapAfter(root, next.getKey(), length);
+            next = node != null ? blocks.ceilingEntry(node.key) : null;
+        }
+    }
+
+    private void putBlock(Block block) {
+        blocks.put(block.start, block);
+        root = insert(root, block.start, gapBefore(block.start));
+        refreshGap(blocks.higherKey(block.start));
+    }
+
+    private void removeBlock(Block block) {
+        blocks.remove(block.start);
+        root = delete(root, block.start);
+        refreshGap(blocks.higherKey(block.start));
+    }
+
+    private long gapBefore(long start) {
+        Map.Entry<Long, Block> previous = blocks.lowerEntry(start);
+        return previous != null ? start - previous.getValue().end : Long.MAX_VALUE;
+    }
+
+    private void refreshGap(Long key) {
+        if (key == null) return;
+
+        root = updateGap(root, key, gapBefore(key));
+    }
+
+    private static long floorSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long ceilSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) + (time.getNano() > 0 ? 1 : 0);
+    }
+
+    private static long align(long seconds) {
+        return Math.ceilDiv(seconds, STEP_SECONDS) * STEP_SECONDS;
+    }
+
+    // Самый левый узел с ключом больше after, перед которым свободно больше length секунд
+    private static GapNode firstGapAfter(GapNode node, long after, long length) {
+        if (node == null || node.maxGap <= length) return null;
+
+        if (node.key > after) {
+            GapNode found = firstGapAfter(node.left, after, length);
+            if (found != null) return found;
+            if (node.gap > length) return node;
+        }
+
+        return firstGapAfter(node.right, after, length);
+    }
+
+    private static GapNode insert(GapNode node, long key, long gap) {
+        if (node == null) return new GapNode(key, gap);
+
+        if (key < node.key) {
+            node.left = insert(node.left, key, gap);
+        } else if (key > node.key) {
+            node.right = insert(node.right, key, gap);
+        } else {
+            node.gap = gap;
+        }
+
+        return balance(node);
+    }
+
+    private static GapNode updateGap(GapNode node, long key, long gap) {
+        if (node == null) return null;
+
+        if (key < node.key) {
+            node.left = updateGap(node.left, key, gap);
+        } else if (key > node.key) {
+            node.right = updateGap(node.right, key, gap);
+        } else {
+            node.gap = gap;
+        }
+        update(node);
+
+        return node;
+    }
+
+    private static GapNode delete(GapNode node, long key) {
+        if (node == null) return null;
+
+        if (key < node.key) {
+            node.left = delete(node.left, key);
+        } else if (key > node.key) {
+            node.right = delete(node.right, key);
+        } else {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+
+            GapNode successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+
+        return balance(node);
+    }
+
+    private static GapNode deleteMin(GapNode node) {
+        if (node.left == null) return node.right;
+
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static int height(GapNode node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static void update(GapNode node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.maxGap = node.gap;
+        if (node.left != null && node.left.maxGap > node.maxGap) node.maxGap = node.left.maxGap;
+        if (node.right != null && node.right.maxGap > node.maxGap) node.maxGap = node.right.maxGap;
+    }
+
+    private static GapNode balance(GapNode node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+
+        return node;
+    }
+
+    private static GapNode rotateRight(GapNode node) {
+        GapNode pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+
+        return pivot;
+    }
+
+    private static GapNode rotateLeft(GapNode node) {
+        GapNode pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+
+        return pivot;
+    }
+}
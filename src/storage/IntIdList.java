@@ -0,0 +1,144 @@
+package storage;
+
+import java.util.*;
+
+// Список различных int-идентификаторов в порядке добавления: contains и remove(Object) за O(1)
+// через индекс позиций. Удалённые позиции помечаются и уплотняются изменяющими операциями, когда их
+// становится больше, чем живых элементов. Повторное добавление уже присутствующего id ничего не меняет.
+public class IntIdList extends AbstractList<Integer> {
+    private int[] items;
+    private final BitSet removed = new BitSet();
+    private final IntIntMap positions = new IntIntMap();
+    private int end;
+    private int size;
+
+    public IntIdList() {
+        items = new int[4];
+    }
+
+    public IntIdList(Collection<Integer> ids) {
+        items = new int[Math.max(4, ids.size())];
+        for (Integer id : ids) {
+            append(id);
+        }
+    }
+
+    public boolean add(int id) {
+        return append(id);
+    }
+
+    private boolean append(int id) {
+        if (positions.containsKey(id)) return false;
+
+        if (end == items.length) {
+            if (end - size > size) {
+                compact();
+            } else {
+                items = Arrays.copyOf(items, items.length << 1);
+            }
+        }
+
+        items[end] = id;
+        positions.put(id, end++);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    public boolean removeId(int id) {
+        int position = positions.remove(id, -1);
+        if (position < 0) return false;
+
+        removed.set(position);
+        size--;
+        modCount++;
+        if (end - size > 16 && end - size > size) {
+            compact();
+        }
+
+        return true;
+    }
+
+    public boolean containsId(int id) {
+        return positions.containsKey(id);
+    }
+
+    @Override
+    public boolean add(Integer id) {
+        return add((int) id);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && removeId((Integer) o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsId((Integer) o);
+    }
+
+    @Override
+    public Integer get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+
+        // Чтение не уплотняет массив: каждая удалённая позиция до искомой сдвигает её на одну вправо
+        int position = index;
+        for (int hole = removed.nextSetBit(0); hole >= 0 && hole <= position; hole = removed.nextSetBit(hole + 1)) {
+            position++;
+        }
+
+        return items[position];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        positions.clear();
+        removed.clear();
+        end = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int position = removed.nextClearBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return position < end;
+            }
+
+            @Override
+            public Integer next() {
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+                if (position >= end) throw new NoSuchElementException();
+
+                int id = items[position];
+                position = removed.nextClearBit(position + 1);
+                return id;
+            }
+        };
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < end; i++) {
+            if (removed.get(i)) continue;
+
+            items[target] = items[i];
+            positions.put(items[target], target);
+            target++;
+        }
+
+        removed.clear();
+        end = target;
+    }
+}
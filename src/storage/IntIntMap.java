@@ -0,0 +1,115 @@
+package storage;
+
+import java.util.Arrays;
+
+// Отображение int -> неотрицательный int с открытой адресацией для внутренних индексов; устроено
+// как IntObjectMap. Значения хранятся со сдвигом на единицу, и ноль обозначает пустую ячейку
+class IntIntMap {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    IntIntMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int get(int key, int missing) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] - 1 : missing;
+    }
+
+    boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    void put(int key, int value) {
+        if (value < 0) throw new IllegalArgumentException("Значение должно быть неотрицательным");
+
+        int slot = index(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (++size > keys.length / 2) {
+            resize(keys.length << 1);
+        }
+    }
+
+    int remove(int key, int missing) {
+        int slot = find(key);
+        if (slot < 0) return missing;
+
+        int previous = values[slot] - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+
+        while (values[next] != 0) {
+            int home = index(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        values[gap] = 0;
+        size--;
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private int index(int key) {
+        return IntObjectMap.mix(key) & mask;
+    }
+
+    private int find(int key) {
+        int slot = index(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == 0) continue;
+
+            int slot = index(oldKeys[i]);
+            while (values[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package storage;
+
+import model.Task;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// AVL-дерево интервалов задач, упорядоченное по (начало, id) и дополненное максимальным концом
+// в поддереве. Интервалы замкнутые: задачи, касающиеся концами, считаются пересекающимися.
+// Границы копируются при вставке, поэтому последующее изменение объекта задачи не ломает дерево.
+public class IntervalTree {
+    private Node root;
+    private final Map<Integer, LocalDateTime> startById = new HashMap<>();
+
+    private static class Node {
+        final Task task;
+        final int id;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        LocalDateTime maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(Task task) {
+            this.task = task;
+            this.id = task.getId();
+            this.start = task.getStartTime();
+            this.end = task.getEndTime();
+            this.maxEnd = end;
+        }
+    }
+
+    public void put(Task task) {
+        if (task.getStartTime() == null) throw new IllegalArgumentException("У задачи не задано время начала");
+
+        remove(task.getId());
+        root = insert(root, new Node(task));
+        startById.put(task.getId(), task.getStartTime());
+    }
+
+    public boolean remove(int id) {
+        LocalDateTime start = startById.remove(id);
+        if (start == null) return false;
+
+        root = delete(root, start, id);
+        return true;
+    }
+
+    // Есть ли интервал, пересекающийся с [start, end], кроме равного exclude
+    public boolean overlaps(LocalDateTime start, LocalDateTime end, Task exclude) {
+        return overlaps(root, start, end, exclude);
+    }
+
+    // Строит сбалансированное дерево за линейное время из задач, упорядоченных по (начало, id)
+    public void buildFromSorted(List<Task> sorted) {
+        clear();
+        for (Task task : sorted) {
+            startById.put(task.getId(), task.getStartTime());
+        }
+        root = build(sorted, 0, sorted.size() - 1);
+    }
+
+    public void clear() {
+        root = null;
+        startById.clear();
+    }
+
+    public int size() {
+        return startById.size();
+    }
+
+    private static boolean overlaps(Node node, LocalDateTime start, LocalDateTime end, Task exclude) {
+        while (node != null && !node.maxEnd.isBefore(start)) {
+            if (overlaps(node.left, start, end, exclude)) return true;
+            if (node.start.isAfter(end)) return false;
+            if (!node.end.isBefore(start) && !node.task.equals(exclude)) return true;
+
+            node = node.right;
+        }
+
+        return false;
+    }
+
+    private static Node build(List<Task> sorted, int from, int to) {
+        if (from > to) return null;
+
+        int mid = (from + to) >>> 1;
+        Node node = new Node(sorted.get(mid));
+        node.left = build(sorted, from, mid - 1);
+        node.right = build(sorted, mid + 1, to);
+        update(node);
+
+        return node;
+    }
+
+    private static int compare(LocalDateTime start, int id, Node node) {
+        int byStart = start.compareTo(node.start);
+        return byStart != 0 ? byStart : Integer.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) return added;
+
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+
+        return balance(node);
+    }
+
+    private static Node delete(Node node, LocalDateTime start, int id) {
+        if (node == null) return null;
+
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) return node.right;
+
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static int height(Node node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(node.maxEnd)) node.maxEnd = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd.isAfter(node.maxEnd)) node.maxEnd = node.right.maxEnd;
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+
+        return pivot;
+    }
+}
@@ -0,0 +1,111 @@
+package storage;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class JournalCompactor implements Closeable {
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_RECORDS = 50_000;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile long maxBytes;
+    private volatile int maxRecords;
+    private volatile Exception lastError;
+    private volatile int completed;
+
+    public JournalCompactor() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_MAX_RECORDS);
+    }
+
+    public JournalCompactor(long maxBytes, int maxRecords) {
+        this.maxBytes = maxBytes;
+        this.maxRecords = maxRecords;
+    }
+
+    public void setThresholds(long maxBytes, int maxRecords) {
+        this.maxBytes = maxBytes;
+        this.maxRecords = maxRecords;
+    }
+
+    public boolean isDue(TaskJournal journal) {
+        if (running.get()) return false;
+
+        return journal.getRecordCount() >= maxRecords || journal.length() >= maxBytes;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public int getCompletedCount() {
+        return completed;
+    }
+
+    // Ошибка фоновой компакции хранится, пока её не заберут, и отдаётся один раз:
+    // следующая успешная компакция её не стирает
+    public Exception takeError() {
+        Exception error = lastError;
+        lastError = null;
+
+        return error;
+    }
+
+    public boolean start() {
+        return running.compareAndSet(false, true);
+    }
+
+    public synchronized void abort() {
+        running.set(false);
+        notifyAll();
+    }
+
+    public void submit(SnapshotWriter writer) {
+        executor.execute(() -> {
+            try {
+                writer.write();
+                completed++;
+            } catch (Exception e) {
+                lastError = e;
+            } finally {
+                synchronized (this) {
+                    running.set(false);
+                    notifyAll();
+                }
+            }
+        });
+    }
+
+    public synchronized void awaitIdle() {
+        while (running.get()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public interface SnapshotWriter {
+        void write() throws Exception;
+    }
+}
@@ -0,0 +1,148 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelLineParser<T> {
+    public static final int MIN_CHUNK_SIZE = 1024 * 1024;
+
+    private final LineParser<T> parser;
+    private final Charset charset;
+    private final int chunkSize;
+
+    public interface LineParser<T> {
+        T parse(CharSequence text, int start, int end);
+    }
+
+    public ParallelLineParser(LineParser<T> parser, Charset charset, int chunkSize) {
+        this.parser = parser;
+        this.charset = charset;
+        this.chunkSize = chunkSize;
+    }
+
+    public static int chunkSizeFor(long fileSize) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+
+        return (int) Math.max(MIN_CHUNK_SIZE, fileSize / (parallelism * 4L));
+    }
+
+    // Возвращает разобранные записи в порядке строк файла; первая строка (заголовок) пропускается
+    public List<T> parse(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int limit = buffer.limit();
+            int start = nextLine(buffer, 0, limit);
+
+            List<int[]> chunks = new ArrayList<>();
+            while (start < limit) {
+                int end = nextLine(buffer, (int) Math.min((long) start + chunkSize, limit) - 1, limit);
+                chunks.add(new int[]{start, end});
+                start = end;
+            }
+
+            List<Chunk<T>> parsed = ForkJoinPool.commonPool().invoke(new ChunkTask(buffer, chunks, 0, chunks.size()));
+            List<T> result = new ArrayList<>();
+            // Как и последовательное чтение, разбор заканчивается на первой пустой строке: блоки после неё
+            // отбрасываются, а ошибка разбора учитывается, только если строка лежит до неё
+            for (Chunk<T> chunk : parsed) {
+                result.addAll(chunk.records);
+                if (chunk.failure != null) throw chunk.failure;
+                if (chunk.stopped) break;
+            }
+
+            return result;
+        }
+    }
+
+    private static int nextLine(MappedByteBuffer buffer, int from, int limit) {
+        int position = Math.max(from, 0);
+
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+
+        return Math.min(position + 1, limit);
+    }
+
+    private static final class Chunk<T> {
+        final List<T> records = new ArrayList<>();
+        boolean stopped;
+        RuntimeException failure;
+    }
+
+    private Chunk<T> parseChunk(MappedByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.slice(start, end - start).get(bytes);
+        String text = new String(bytes, charset);
+
+        Chunk<T> chunk = new Chunk<>();
+        int lineStart = 0;
+
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = text.length();
+
+            int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd == lineStart) {
+                chunk.stopped = true;
+                return chunk;
+            }
+
+            try {
+                chunk.records.add(parser.parse(text, lineStart, contentEnd));
+            } catch (RuntimeException e) {
+                chunk.failure = e;
+                return chunk;
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return chunk;
+    }
+
+    // Задача fork/join сериализуема только по наследству от ForkJoinTask и никогда не сериализуется
+    @SuppressWarnings("serial")
+    private class ChunkTask extends RecursiveTask<List<Chunk<T>>> {
+        private final MappedByteBuffer buffer;
+        private final List<int[]> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(MappedByteBuffer buffer, List<int[]> chunks, int from, int to) {
+            this.buffer = buffer;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Chunk<T>> compute() {
+            if (to - from <= 1) {
+                List<Chunk<T>> result = new ArrayList<>();
+                if (from < to) {
+                    int[] chunk = chunks.get(from);
+                    result.add(parseChunk(buffer, chunk[0], chunk[1]));
+                }
+                return result;
+            }
+
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(buffer, chunks, from, middle);
+            left.fork();
+            List<Chunk<T>> right = new ChunkTask(buffer, chunks, middle, to).compute();
+            List<Chunk<T>> result = left.join();
+            result.addAll(right);
+
+            return result;
+        }
+    }
+}
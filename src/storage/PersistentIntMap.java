@@ -0,0 +1,227 @@
+package storage;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Неизменяемое отображение int -> V на AVL-дереве с копированием пути: put и remove возвращают
+// новую версию за O(log n), разделяя с прежней все нетронутые узлы. Старые версии остаются
+// корректными, поэтому читатель может держать ссылку на версию и обходить её без блокировок.
+public final class PersistentIntMap<V> {
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null);
+
+    private final Node<V> root;
+
+    private static final class Node<V> {
+        final int key;
+        final V value;
+        final Node<V> left;
+        final Node<V> right;
+        final int height;
+        final int size;
+
+        Node(int key, V value, Node<V> left, Node<V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private PersistentIntMap(Node<V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    public V get(int key) {
+        Node<V> node = root;
+        while (node != null) {
+            if (key < node.key) node = node.left;
+            else if (key > node.key) node = node.right;
+            else return node.value;
+        }
+
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public PersistentIntMap<V> put(int key, V value) {
+        if (value == null) throw new IllegalArgumentException("Передан null объект");
+
+        return new PersistentIntMap<>(insert(root, key, value));
+    }
+
+    public PersistentIntMap<V> remove(int key) {
+        if (get(key) == null) return this;
+
+        return new PersistentIntMap<>(delete(root, key));
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // Представление значений в порядке ключей: создаётся за O(1), get(i) работает за O(log n)
+    public List<V> values() {
+        return new AbstractList<>() {
+            @Override
+            public V get(int index) {
+                if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+
+                Node<V> node = root;
+                while (true) {
+                    int leftSize = PersistentIntMap.size(node.left);
+                    if (index < leftSize) {
+                        node = node.left;
+                    } else if (index > leftSize) {
+                        index -= leftSize + 1;
+                        node = node.right;
+                    } else {
+                        return node.value;
+                    }
+                }
+            }
+
+            @Override
+            public int size() {
+                return PersistentIntMap.size(root);
+            }
+
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator<>(root);
+            }
+        };
+    }
+
+    // Не больше limit значений с ключами больше after: спуск к первому ключу за O(log n), дальше обход по порядку
+    public List<V> valuesAfter(int after, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("Лимит должен быть положительным");
+
+        List<V> page = new ArrayList<>(Math.min(limit, size()));
+        Iterator<V> iterator = new ValueIterator<>(root, after);
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+
+        return page;
+    }
+
+    private static final class ValueIterator<V> implements Iterator<V> {
+        private final Deque<Node<V>> path = new ArrayDeque<>();
+
+        ValueIterator(Node<V> root) {
+            descend(root);
+        }
+
+        // Путь до первого узла с ключом больше after: узлы с меньшими ключами и их левые поддеревья пропускаются
+        ValueIterator(Node<V> root, int after) {
+            Node<V> node = root;
+            while (node != null) {
+                if (node.key > after) {
+                    path.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        private void descend(Node<V> node) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public V next() {
+            if (path.isEmpty()) throw new NoSuchElementException();
+
+            Node<V> node = path.pop();
+            descend(node.right);
+            return node.value;
+        }
+    }
+
+    private static int height(Node<?> node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static <V> Node<V> insert(Node<V> node, int key, V value) {
+        if (node == null) return new Node<>(key, value, null, null);
+
+        if (key < node.key) return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        if (key > node.key) return balance(node.key, node.value, node.left, insert(node.right, key, value));
+
+        return new Node<>(key, value, node.left, node.right);
+    }
+
+    private static <V> Node<V> delete(Node<V> node, int key) {
+        if (key < node.key) return balance(node.key, node.value, delete(node.left, key), node.right);
+        if (key > node.key) return balance(node.key, node.value, node.left, delete(node.right, key));
+
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+
+        Node<V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+
+        return balance(successor.key, successor.value, node.left, delete(node.right, successor.key));
+    }
+
+    private static <V> Node<V> balance(int key, V value, Node<V> left, Node<V> right) {
+        int skew = height(left) - height(right);
+
+        if (skew > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            }
+            return rotateRight(key, value, left, right);
+        }
+        if (skew < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            }
+            return rotateLeft(key, value, left, right);
+        }
+
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <V> Node<V> rotateRight(int key, V value, Node<V> left, Node<V> right) {
+        return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+    }
+
+    private static <V> Node<V> rotateLeft(int key, V value, Node<V> left, Node<V> right) {
+        return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+    }
+}
@@ -0,0 +1,146 @@
+package storage;
+
+import model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Битовая сетка занятости ограниченного горизонта планирования: слот k покрывает
+// [origin + k * g, origin + (k + 1) * g]. В сетку попадают только задачи, начало и конец которых
+// лежат на границах слотов, поэтому проверка пересечения сводится к нескольким операциям над словами.
+// Пересечение замкнутое, как и в IntervalTree: задача, касающаяся занятого слота, с ним пересекается.
+public class SlotGrid {
+    private final LocalDateTime origin;
+    private final long granularitySeconds;
+    private final int slotCount;
+    private final long[] words;
+    private final Map<Integer, Reservation> reservations = new HashMap<>();
+
+    private static class Reservation {
+        final Task task;
+        final int from;
+        final int to;
+
+        Reservation(Task task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    public SlotGrid(LocalDateTime origin, Duration granularity, Duration horizon) {
+        if (origin == null) throw new IllegalArgumentException("Не задано начало сетки");
+        if (granularity.isNegative() || granularity.isZero() || granularity.getNano() != 0) {
+            throw new IllegalArgumentException("Шаг сетки должен быть положительным целым числом секунд");
+        }
+
+        long slots = horizon.getSeconds() / granularity.getSeconds();
+        if (slots <= 0 || slots > Integer.MAX_VALUE - Long.SIZE) {
+            throw new IllegalArgumentException("Недопустимый горизонт сетки");
+        }
+
+        this.origin = origin;
+        this.granularitySeconds = granularity.getSeconds();
+        this.slotCount = (int) slots;
+        this.words = new long[(slotCount + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    // Резервирует слоты задачи; false, если задача не лежит на сетке, выходит за горизонт
+    // или её слоты уже заняты — тогда её нужно проверять точно
+    public boolean reserve(Task task) {
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || !end.isAfter(start) || !onGrid(start) || !onGrid(end)) return false;
+
+        long from = Duration.between(origin, start).getSeconds() / granularitySeconds;
+        long to = Duration.between(origin, end).getSeconds() / granularitySeconds - 1;
+        if (from < 0 || to >= slotCount || anySet((int) from, (int) to)) return false;
+
+        release(task.getId());
+        setRange((int) from, (int) to, true);
+        reservations.put(task.getId(), new Reservation(task, (int) from, (int) to));
+
+        return true;
+    }
+
+    public boolean release(int id) {
+        Reservation reservation = reservations.remove(id);
+        if (reservation == null) return false;
+
+        setRange(reservation.from, reservation.to, false);
+        return true;
+    }
+
+    // Занят ли хотя бы один слот, касающийся [start, end], кроме слотов задачи, равной exclude
+    public boolean overlaps(LocalDateTime start, LocalDateTime end, Task exclude) {
+        long from = Math.max(ceilSlot(start) - 1, 0);
+        long to = Math.min(floorSlot(end), slotCount - 1);
+        if (from > to) return false;
+
+        Reservation own = exclude != null ? reservations.get(exclude.getId()) : null;
+        if (own == null || !own.task.equals(exclude)) return anySet((int) from, (int) to);
+
+        return anySet((int) from, (int) Math.min(to, own.from - 1))
+                || anySet((int) Math.max(from, own.to + 1), (int) to);
+    }
+
+    public boolean isReserved(int id) {
+        return reservations.containsKey(id);
+    }
+
+    public int reservedCount() {
+        return reservations.size();
+    }
+
+    public void clear() {
+        reservations.clear();
+        Arrays.fill(words, 0L);
+    }
+
+    private boolean onGrid(LocalDateTime time) {
+        Duration offset = Duration.between(origin, time);
+        return offset.getNano() == 0 && Math.floorMod(offset.getSeconds(), granularitySeconds) == 0;
+    }
+
+    private long floorSlot(LocalDateTime time) {
+        return Math.floorDiv(Duration.between(origin, time).getSeconds(), granularitySeconds);
+    }
+
+    private long ceilSlot(LocalDateTime time) {
+        long slot = floorSlot(time);
+        return onGrid(time) ? slot : slot + 1;
+    }
+
+    private boolean anySet(int from, int to) {
+        if (from > to) return false;
+
+        int first = from >>> 6;
+        int last = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+
+        if (first == last) return (words[first] & firstMask & lastMask) != 0;
+        if ((words[first] & firstMask) != 0) return true;
+        for (int i = first + 1; i < last; i++) {
+            if (words[i] != 0) return true;
+        }
+
+        return (words[last] & lastMask) != 0;
+    }
+
+    private void setRange(int from, int to, boolean value) {
+        int first = from >>> 6;
+        int last = to >>> 6;
+
+        for (int i = first; i <= last; i++) {
+            long mask = -1L;
+            if (i == first) mask &= -1L << from;
+            if (i == last) mask &= -1L >>> (63 - (to & 63));
+
+            words[i] = value ? words[i] | mask : words[i] & ~mask;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package storage;
+
+import model.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Файл записей фиксированного размера: каждая задача занимает свой слот, поэтому изменение
+// перезаписывает только его. Имена и описания лежат в отдельной области переполнения (<file>.text),
+// куда дописываются лишь изменившиеся строки. Освобождённые слоты используются повторно.
+public class SlotRecordFile implements Closeable {
+    public static final int HEADER_SIZE = 32;
+    public static final int SLOT_SIZE = 64;
+
+    private static final int MAGIC = 0x4B534C54;
+    private static final int VERSION = 1;
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final FileChannel slots;
+    private final FileChannel text;
+    private final ByteBuffer slotBuffer = ByteBuffer.allocate(SLOT_SIZE);
+    private final Map<Integer, Entry> index = new HashMap<>();
+    private final Map<Integer, Set<Integer>> children = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int slotCount;
+    private boolean lazyDescriptions;
+
+    private static class Entry {
+        int slot;
+        TaskType type;
+        int epicId;
+        String name;
+        long nameOffset;
+        int nameLength;
+        String description;
+        boolean descriptionKnown;
+        long descriptionOffset;
+        int descriptionLength;
+    }
+
+    public SlotRecordFile(File file) throws IOException {
+        slots = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        text = FileChannel.open(textFile(file).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        if (slots.size() == 0) {
+            writeHeader();
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            slots.read(header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) throw new IOException("Неверный формат файла слотов");
+            if (header.getInt() != VERSION) throw new IOException("Неподдерживаемая версия файла слотов");
+            slotCount = header.getInt();
+        }
+    }
+
+    public static File textFile(File file) {
+        return new File(file.getPath() + ".text");
+    }
+
+    public static boolean isSlotFile(File file) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) return false;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            header.flip();
+
+            return header.getInt() == MAGIC;
+        }
+    }
+
+    // Описания не держатся в памяти: задачи получают загрузчик, читающий текст по смещению слота.
+    // Загрузчик вызывается из любых потоков (например, обработчиков HTTP), поэтому доступ к индексу
+    // слотов синхронизирован
+    public void setLazyDescriptions(boolean lazyDescriptions) {
+        this.lazyDescriptions = lazyDescriptions;
+    }
+
+    public synchronized String readDescription(int id) throws IOException {
+        Entry entry = index.get(id);
+        if (entry == null) return null;
+
+        return readText(entry.descriptionOffset, entry.descriptionLength);
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int getSlotCount() {
+        return slotCount;
+    }
+
+    public synchronized int getFreeSlotCount() {
+        return freeSlots.size();
+    }
+
+    public synchronized void readAll(Consumer<Task> consumer) throws IOException {
+        index.clear();
+        children.clear();
+        freeSlots.clear();
+
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE * 1024);
+        long position = HEADER_SIZE;
+        int slot = 0;
+
+        while (slot < slotCount) {
+            buffer.clear();
+            int toRead = Math.min(buffer.capacity(), (slotCount - slot) * SLOT_SIZE);
+            buffer.limit(toRead);
+            while (buffer.hasRemaining()) {
+                // Заголовок обещает больше слотов, чем есть в файле: продолжать чтение бессмысленно
+                if (slots.read(buffer, position + buffer.position()) < 0) throw new IOException("Файл слотов обрезан");
+            }
+            buffer.flip();
+            position += toRead;
+
+            while (buffer.remaining() >= SLOT_SIZE) {
+                Task task = readSlot(buffer, slot);
+                if (task != null) {
+                    consumer.accept(task);
+                }
+                slot++;
+            }
+        }
+    }
+
+    public synchronized void write(Task task) throws IOException {
+        Entry entry = index.get(task.getId());
+
+        if (entry == null) {
+            entry = new Entry();
+            entry.slot = freeSlots.isEmpty() ? slotCount : freeSlots.pop();
+            entry.nameLength = -1;
+            entry.descriptionLength = -1;
+            index.put(task.getId(), entry);
+        } else if (entry.type == TaskType.SUBTASK) {
+            unlinkChild(entry.epicId, task.getId());
+        }
+
+        entry.type = task.getType();
+        entry.epicId = task.getType() == TaskType.SUBTASK ? ((Subtask) task).getEpicId() : 0;
+
+        if (entry.type == TaskType.SUBTASK) {
+            children.computeIfAbsent(entry.epicId, k -> new HashSet<>()).add(task.getId());
+        }
+
+        if (entry.nameLength < 0 || !Objects.equals(entry.name, task.getName())) {
+            byte[] bytes = encode(task.getName());
+            entry.name = task.getName();
+            entry.nameOffset = appendText(bytes);
+            entry.nameLength = bytes != null ? bytes.length : -1;
+        }
+
+        if (task.isDescriptionLoaded() && descriptionChanged(entry, task.getDescription())) {
+            byte[] bytes = encode(task.getDescription());
+            entry.description = lazyDescriptions ? null : task.getDescription();
+            entry.descriptionKnown = !lazyDescriptions;
+            entry.descriptionOffset = appendText(bytes);
+            entry.descriptionLength = bytes != null ? bytes.length : -1;
+        }
+
+        writeSlot(entry, task);
+
+        if (entry.slot >= slotCount) {
+            slotCount = entry.slot + 1;
+            writeHeader();
+        }
+    }
+
+    private boolean descriptionChanged(Entry entry, String description) throws IOException {
+        if (entry.descriptionLength < 0) return true;
+        if (entry.descriptionKnown) return !Objects.equals(entry.description, description);
+
+        return !Objects.equals(readText(entry.descriptionOffset, entry.descriptionLength), description);
+    }
+
+    // Возвращает id эпика удалённой подзадачи или 0; вместе с эпиком освобождаются слоты его подзадач
+    public synchronized int remove(int id) throws IOException {
+        Entry entry = index.remove(id);
+        if (entry == null) return 0;
+
+        freeSlot(entry.slot);
+
+        if (entry.type == TaskType.EPIC) {
+            Set<Integer> subtaskIds = children.remove(id);
+            if (subtaskIds != null) {
+                for (Integer subtaskId : subtaskIds) {
+                    Entry subtask = index.remove(subtaskId);
+                    if (subtask != null) {
+                        freeSlot(subtask.slot);
+                    }
+                }
+            }
+            return 0;
+        }
+
+        if (entry.type == TaskType.SUBTASK) {
+            unlinkChild(entry.epicId, id);
+            return entry.epicId;
+        }
+
+        return 0;
+    }
+
+    public synchronized void clear(TaskType type) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+
+        for (Map.Entry<Integer, Entry> entry : index.entrySet()) {
+            TaskType entryType = entry.getValue().type;
+            if (entryType == type || (type == TaskType.EPIC && entryType == TaskType.SUBTASK)) {
+                ids.add(entry.getKey());
+            }
+        }
+
+        for (Integer id : ids) {
+            Entry entry = index.remove(id);
+            if (entry != null) {
+                freeSlot(entry.slot);
+            }
+        }
+
+        if (type != TaskType.TASK) {
+            children.clear();
+        }
+    }
+
+    public synchronized void force() throws IOException {
+        text.force(false);
+        slots.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        slots.close();
+        text.close();
+    }
+
+    private Task readSlot(ByteBuffer buffer, int slot) throws IOException {
+        int start = buffer.position();
+
+        if (buffer.get() != USED) {
+            buffer.position(start + SLOT_SIZE);
+            freeSlots.push(slot);
+            return null;
+        }
+
+        TaskType type = TYPES[buffer.get()];
+        Status status = STATUSES[buffer.get()];
+        boolean hasStart = buffer.get() == 1;
+        int id = buffer.getInt();
+        int epicId = buffer.getInt();
+        Duration duration = Duration.ofSeconds(buffer.getLong());
+        long epochSecond = buffer.getLong();
+        int nano = buffer.getInt();
+        long nameOffset = buffer.getLong();
+        int nameLength = buffer.getInt();
+        long descriptionOffset = buffer.getLong();
+        int descriptionLength = buffer.getInt();
+        buffer.position(start + SLOT_SIZE);
+
+        Entry entry = new Entry();
+        entry.slot = slot;
+        entry.type = type;
+        entry.epicId = epicId;
+        entry.nameOffset = nameOffset;
+        entry.nameLength = nameLength;
+        entry.name = readText(nameOffset, nameLength);
+        entry.descriptionOffset = descriptionOffset;
+        entry.descriptionLength = descriptionLength;
+        entry.descriptionKnown = !lazyDescriptions;
+        entry.description = lazyDescriptions ? null : readText(descriptionOffset, descriptionLength);
+        index.put(id, entry);
+
+        LocalDateTime startTime = hasStart ? LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC) : null;
+        Task task;
+
+        switch (type) {
+            case TASK:
+                task = new Task(entry.name, entry.description, id, status, duration, startTime);
+                break;
+            case EPIC:
+                Epic epic = new Epic(entry.name, entry.description, id);
+                epic.setStatus(status);
+                epic.setDuration(duration);
+                epic.setStartTime(startTime);
+                task = epic;
+                break;
+            default:
+                children.computeIfAbsent(epicId, k -> new HashSet<>()).add(id);
+                task = new Subtask(entry.name, entry.description, id, status, epicId, duration, startTime);
+        }
+
+        if (lazyDescriptions) {
+            task.setDescriptionLoader(() -> {
+                try {
+                    return readDescription(id);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        return task;
+    }
+
+    private void writeSlot(Entry entry, Task task) throws IOException {
+        LocalDateTime startTime = task.getStartTime();
+        Duration duration = task.getDuration() != null ? task.getDuration() : Duration.ZERO;
+
+        slotBuffer.clear();
+        slotBuffer.put(USED)
+                .put((byte) entry.type.ordinal())
+                .put((byte) task.getStatus().ordinal())
+                .put((byte) (startTime != null ? 1 : 0))
+                .putInt(task.getId())
+                .putInt(entry.epicId)
+                .putLong(duration.getSeconds())
+                .putLong(startTime != null ? startTime.toEpochSecond(ZoneOffset.UTC) : 0)
+                .putInt(startTime != null ? startTime.getNano() : 0)
+                .putLong(entry.nameOffset)
+                .putInt(entry.nameLength)
+                .putLong(entry.descriptionOffset)
+                .putInt(entry.descriptionLength);
+        while (slotBuffer.hasRemaining()) {
+            slotBuffer.put((byte) 0);
+        }
+        slotBuffer.flip();
+
+        writeFully(slots, slotBuffer, slotOffset(entry.slot));
+    }
+
+    private void freeSlot(int slot) throws IOException {
+        slotBuffer.clear();
+        slotBuffer.put(FREE);
+        slotBuffer.flip();
+        writeFully(slots, slotBuffer, slotOffset(slot));
+        freeSlots.push(slot);
+    }
+
+    private void unlinkChild(int epicId, int subtaskId) {
+        Set<Integer> subtaskIds = children.get(epicId);
+        if (subtaskIds != null) {
+            subtaskIds.remove(subtaskId);
+        }
+    }
+
+    private long appendText(byte[] bytes) throws IOException {
+        if (bytes == null) return 0;
+
+        long offset = text.size();
+        writeFully(text, ByteBuffer.wrap(bytes), offset);
+
+        return offset;
+    }
+
+    public String readText(long offset, int length) throws IOException {
+        if (length < 0) return null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (text.read(buffer, offset + buffer.position()) < 0) break;
+        }
+
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(slotCount);
+        header.position(HEADER_SIZE);
+        header.flip();
+        writeFully(slots, header, 0);
+    }
+
+    private static long slotOffset(int slot) {
+        return HEADER_SIZE + (long) slot * SLOT_SIZE;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
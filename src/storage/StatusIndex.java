@@ -0,0 +1,93 @@
+package storage;
+
+import model.Status;
+import model.TaskType;
+
+import java.util.Arrays;
+
+// Вторичный индекс id по типу и статусу. Запоминает тип и статус, под которыми проиндексирована каждая
+// запись, поэтому переиндексация корректна, даже если объект был изменён на месте до обновления.
+// Метки лежат в плотном массиве по id (id выдаются последовательно), так что обновление не хеширует,
+// а группы одного типа очищаются целиком
+public class StatusIndex {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final IntIdList[][] groups = new IntIdList[TYPES.length][STATUSES.length];
+    // 0 — запись не проиндексирована, иначе 1 + type * STATUSES.length + status
+    private byte[] tags = new byte[64];
+
+    public StatusIndex() {
+        for (int type = 0; type < TYPES.length; type++) {
+            for (int status = 0; status < STATUSES.length; status++) {
+                groups[type][status] = new IntIdList();
+            }
+        }
+    }
+
+    // Записи без статуса не попадают ни в одну группу
+    public void index(int id, TaskType type, Status status) {
+        if (id < 0) throw new IllegalArgumentException("Некорректный ID " + id);
+
+        int tag = status != null ? 1 + type.ordinal() * STATUSES.length + status.ordinal() : 0;
+        int previous = tagOf(id);
+        if (previous == tag) return;
+
+        if (previous != 0) group(previous).removeId(id);
+        if (tag != 0) {
+            if (id >= tags.length) tags = Arrays.copyOf(tags, Math.max(tags.length << 1, id + 1));
+            group(tag).add(id);
+        }
+        if (id < tags.length) tags[id] = (byte) tag;
+    }
+
+    public void remove(int id) {
+        int previous = tagOf(id);
+        if (previous == 0) return;
+
+        group(previous).removeId(id);
+        tags[id] = 0;
+    }
+
+    public Status statusOf(int id) {
+        int tag = tagOf(id);
+        return tag != 0 ? STATUSES[(tag - 1) % STATUSES.length] : null;
+    }
+
+    public IntIdList ids(TaskType type, Status status) {
+        return groups[type.ordinal()][status.ordinal()];
+    }
+
+    public int count(Status status) {
+        int count = 0;
+        for (IntIdList[] byStatus : groups) {
+            count += byStatus[status.ordinal()].size();
+        }
+
+        return count;
+    }
+
+    // Группы типа заменяются пустыми, метки сбрасываются проходом по массиву без удаления из списков
+    public void clear(TaskType type) {
+        for (int status = 0; status < STATUSES.length; status++) {
+            for (int id : groups[type.ordinal()][status]) {
+                tags[id] = 0;
+            }
+            groups[type.ordinal()][status] = new IntIdList();
+        }
+    }
+
+    public void clear() {
+        for (TaskType type : TYPES) {
+            clear(type);
+        }
+    }
+
+    private int tagOf(int id) {
+        return id >= 0 && id < tags.length ? tags[id] : 0;
+    }
+
+    private IntIdList group(int tag) {
+        return groups[(tag - 1) / STATUSES.length][(tag - 1) % STATUSES.length];
+    }
+}
@@ -0,0 +1,268 @@
+package storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class TaskJournal implements Closeable {
+    public static final long DEFAULT_BATCH_MILLIS = 10;
+    public static final int DEFAULT_BATCH_RECORDS = 64;
+
+    private final File file;
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private int recordCount;
+
+    private Durability durability = Durability.NONE;
+    private long batchMillis = DEFAULT_BATCH_MILLIS;
+    private int batchRecords = DEFAULT_BATCH_RECORDS;
+    private ScheduledExecutorService flusher;
+
+    private volatile long writtenSeq;
+    private volatile long forcedSeq;
+    private volatile int forceCount;
+
+    public TaskJournal(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public File getRotatedFile() {
+        return new File(file.getPath() + ".old");
+    }
+
+    public boolean hasRotated() {
+        return getRotatedFile().exists();
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public long length() {
+        return file.length();
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public int getForceCount() {
+        return forceCount;
+    }
+
+    public synchronized void setDurability(Durability durability, long batchMillis, int batchRecords) {
+        this.durability = durability;
+        this.batchMillis = batchMillis;
+        this.batchRecords = batchRecords;
+
+        if (durability == Durability.BATCHED && flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void append(String record) throws IOException {
+        appendAll(List.of(record));
+    }
+
+    // Пачка записей уходит одной записью в канал и, при необходимости, одной фиксацией на диск
+    public void appendAll(List<String> records) throws IOException {
+        if (records.isEmpty()) return;
+
+        StringBuilder text = new StringBuilder();
+        for (String record : records) {
+            text.append(record).append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        long seq;
+        boolean mustForce;
+
+        synchronized (this) {
+            if (channel == null) {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            recordCount += records.size();
+            writtenSeq += records.size();
+            seq = writtenSeq;
+            mustForce = durability == Durability.SYNC
+                    || (durability == Durability.BATCHED && seq - forcedSeq >= batchRecords);
+        }
+
+        if (mustForce) {
+            awaitDurable(seq);
+        }
+    }
+
+    public void flush() throws IOException {
+        awaitDurable(writtenSeq);
+    }
+
+    // Групповая фиксация: один force() покрывает все записи, дописанные до его начала,
+    // поэтому ожидавшие писатели выходят без собственного вызова
+    private void awaitDurable(long seq) throws IOException {
+        synchronized (syncLock) {
+            if (forcedSeq >= seq) return;
+
+            long target = writtenSeq;
+            FileChannel current;
+
+            synchronized (this) {
+                current = channel;
+            }
+
+            if (current != null) {
+                current.force(false);
+                forceCount++;
+            }
+
+            forcedSeq = target;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            if (forcedSeq < writtenSeq) {
+                flush();
+            }
+        } catch (IOException e) {
+            // Следующий цикл повторит попытку
+        }
+    }
+
+    public void replay(Consumer<String> consumer) throws IOException {
+        replay(getRotatedFile(), consumer);
+        replay(file, consumer);
+    }
+
+    private void replay(File source, Consumer<String> consumer) throws IOException {
+        if (!source.exists()) return;
+
+        // Запись дописывается вместе с переводом строки, поэтому хвост без него оборван сбоем:
+        // он отрезается до чтения, чтобы следующие записи не склеились с ним
+        long complete = completeLength(source);
+        if (complete < source.length()) {
+            try (FileChannel truncated = FileChannel.open(source.toPath(), StandardOpenOption.WRITE)) {
+                truncated.truncate(complete);
+            }
+        }
+
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(source),
+                StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = br.readLine()) != null) {
+                if (line.isEmpty()) continue;
+
+                consumer.accept(line);
+                recordCount++;
+            }
+        }
+    }
+
+    private static long completeLength(File source) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(source, "r")) {
+            byte[] buffer = new byte[4096];
+            long position = raf.length();
+
+            while (position > 0) {
+                int read = (int) Math.min(buffer.length, position);
+                position -= read;
+                raf.seek(position);
+                raf.readFully(buffer, 0, read);
+                for (int i = read - 1; i >= 0; i--) {
+                    if (buffer[i] == '\n') return position + i + 1;
+                }
+            }
+
+            return 0;
+        }
+    }
+
+    public void truncate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                closeChannel();
+                new FileOutputStream(file).close();
+                discardRotated();
+                recordCount = 0;
+            }
+        }
+    }
+
+    public void rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                closeChannel();
+                File rotated = getRotatedFile();
+
+                if (!file.exists()) {
+                    new FileOutputStream(file).close();
+                }
+
+                if (rotated.exists()) {
+                    // Предыдущее уплотнение не завершилось: его записи остаются в старом сегменте
+                    Files.write(rotated.toPath(), Files.readAllBytes(file.toPath()), StandardOpenOption.APPEND);
+                    new FileOutputStream(file).close();
+                } else {
+                    Files.move(file.toPath(), rotated.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+
+                recordCount = 0;
+            }
+        }
+    }
+
+    public void discardRotated() throws IOException {
+        Files.deleteIfExists(getRotatedFile().toPath());
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel == null) return;
+
+        if (durability != Durability.NONE) {
+            channel.force(false);
+            forceCount++;
+        }
+
+        forcedSeq = writtenSeq;
+        channel.close();
+        channel = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+
+        synchronized (syncLock) {
+            synchronized (this) {
+                closeChannel();
+            }
+        }
+    }
+}
@@ -0,0 +1,605 @@
+package storage;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+// Инвертированный индекс по названию и описанию: термин -> список id блоками, сжатыми разностями в varint.
+// Id выдаются по возрастанию, поэтому новая запись обычно дописывается в конец списка без перекодирования,
+// а удаление и обновление перекодируют один блок ограниченного размера.
+// Термины лежат в TreeMap, что даёт поиск по префиксу, и нумеруются: запись хранит свои токены номерами
+// терминов, а не строками, — по ним снимаются старые термины при обновлении и проверяются фразы при поиске.
+// Описание отложенной записи в памяти не держится: его термины индексируются при первом поиске,
+// а для проверки фраз оно читается заново через загрузчик
+public class TextIndex {
+    private static final int NAME_WEIGHT = 2;
+
+    private final TreeMap<String, Term> terms = new TreeMap<>();
+    private Term[] termsById = new Term[64];
+    private final Deque<Integer> freeTermIds = new ArrayDeque<>();
+    private int nextTermId;
+    private final IntObjectMap<Document> documents = new IntObjectMap<>();
+    private final BitSet pending = new BitSet();
+
+    private static final class Term {
+        final int id;
+        final String text;
+        final Postings postings = new Postings();
+
+        Term(int id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    private static final class Document {
+        final int[] name;
+        // Номера терминов описания по порядку; null у отложенной записи
+        final int[] description;
+        // Различные термины описания; у отложенной записи null, пока описание не проиндексировано
+        int[] descriptionTerms;
+        final Supplier<String> loader;
+
+        Document(int[] name, int[] description, Supplier<String> loader) {
+            this.name = name;
+            this.description = description;
+            this.descriptionTerms = description != null ? distinct(description) : null;
+            this.loader = loader;
+        }
+
+        int[] terms() {
+            int[] own = descriptionTerms != null ? descriptionTerms : new int[0];
+            int[] all = Arrays.copyOf(name, name.length + own.length);
+            System.arraycopy(own, 0, all, name.length, own.length);
+            return distinct(all);
+        }
+    }
+
+    // Условие запроса: последовательность терминов, последний может быть префиксом
+    private static final class Clause {
+        final String[] terms;
+        final boolean prefix;
+        int[] termIds;
+        int[] ids;
+
+        Clause(String[] terms, boolean prefix) {
+            this.terms = terms;
+            this.prefix = prefix;
+        }
+    }
+
+    public synchronized void index(int id, String name, String description) {
+        pending.clear(id);
+        put(id, new Document(termIds(tokenize(name)), termIds(tokenize(description)), null));
+    }
+
+    public synchronized void indexLazy(int id, String name, Supplier<String> description) {
+        if (description == null) throw new IllegalArgumentException("Передан null объект");
+
+        put(id, new Document(termIds(tokenize(name)), null, description));
+        pending.set(id);
+    }
+
+    private void put(int id, Document document) {
+        Document previous = documents.put(id, document);
+        int[] added = document.terms();
+        int[] removed = previous != null ? previous.terms() : new int[0];
+
+        // Оба списка отсортированы: термины, оставшиеся у записи, не трогаются
+        int i = 0;
+        int j = 0;
+        while (i < added.length || j < removed.length) {
+            if (j == removed.length || (i < added.length && added[i] < removed[j])) {
+                termsById[added[i++]].postings.add(id);
+            } else if (i == added.length || removed[j] < added[i]) {
+                removePosting(removed[j++], id);
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    public synchronized void remove(int id) {
+        pending.clear(id);
+        Document previous = documents.remove(id);
+        if (previous == null) return;
+
+        for (int term : previous.terms()) {
+            removePosting(term, id);
+        }
+    }
+
+    // Пакетное удаление: документы снимаются разом, а каждый затронутый список терминов
+    // перекодируется один раз, а не по разу на каждый удалённый id
+    public synchronized void removeAll(Collection<Integer> ids) {
+        BitSet removed = new BitSet();
+        BitSet affected = new BitSet();
+        for (int id : ids) {
+            pending.clear(id);
+            Document previous = documents.remove(id);
+            if (previous == null) continue;
+
+            removed.set(id);
+            for (int term : previous.terms()) {
+                affected.set(term);
+            }
+        }
+
+        for (int term = affected.nextSetBit(0); term >= 0; term = affected.nextSetBit(term + 1)) {
+            Postings postings = termsById[term].postings;
+            postings.removeAll(removed);
+            if (postings.count == 0) dropTerm(term);
+        }
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    public synchronized void clear() {
+        terms.clear();
+        termsById = new Term[64];
+        freeTermIds.clear();
+        nextTermId = 0;
+        documents.clear();
+        pending.clear();
+    }
+
+    // Все условия должны выполняться. Слова в кавычках или через дефис — фраза, «*» в конце — префикс.
+    // Результат упорядочен по убыванию релевантности, при равенстве — по id
+    // Синхронизирован: поиск дописывает в индекс отложенные описания, а читатели могут искать параллельно
+    public synchronized int[] search(String query, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("Лимит должен быть положительным");
+
+        List<Clause> clauses = parse(query);
+        if (clauses.isEmpty()) return new int[0];
+
+        indexPending();
+
+        for (Clause clause : clauses) {
+            clause.ids = candidates(clause);
+            if (clause.ids.length == 0) return new int[0];
+        }
+
+        List<Clause> bySize = new ArrayList<>(clauses);
+        bySize.sort(Comparator.comparingInt(clause -> clause.ids.length));
+        int[] ids = bySize.getFirst().ids;
+        for (int i = 1; i < bySize.size() && ids.length > 0; i++) {
+            ids = intersect(ids, bySize.get(i).ids);
+        }
+
+        int matched = 0;
+        int[] found = new int[ids.length];
+        double[] scores = new double[ids.length];
+        for (int id : ids) {
+            double score = score(documents.get(id), clauses);
+            if (score > 0) {
+                found[matched] = id;
+                scores[matched++] = score;
+            }
+        }
+
+        Integer[] order = new Integer[matched];
+        for (int i = 0; i < matched; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : found[a] - found[b]);
+
+        int[] result = new int[Math.min(limit, matched)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = found[order[i]];
+        }
+
+        return result;
+    }
+
+    // Буквы и цифры любого алфавита, без учёта регистра; «ё» приравнивается к «е»
+    public static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) return new String[0];
+
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalize(text.substring(start, i)));
+                start = -1;
+            }
+        }
+
+        return tokens.toArray(new String[0]);
+    }
+
+    private static String normalize(String token) {
+        return token.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        if (query == null) return clauses;
+
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            int end;
+            String text;
+            if (c == '"') {
+                end = query.indexOf('"', i + 1);
+                if (end < 0) end = query.length();
+                text = query.substring(i + 1, end);
+                end++;
+            } else {
+                end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                    end++;
+                }
+                text = query.substring(i, end);
+            }
+
+            String[] tokens = tokenize(text);
+            if (tokens.length > 0) {
+                clauses.add(new Clause(tokens, text.stripTrailing().endsWith("*")));
+            }
+            i = end;
+        }
+
+        return clauses;
+    }
+
+    private void indexPending() {
+        for (int id = pending.nextSetBit(0); id >= 0; id = pending.nextSetBit(id + 1)) {
+            Document document = documents.get(id);
+            int[] description = distinct(termIds(tokenize(document.loader.get())));
+            for (int term : description) {
+                termsById[term].postings.add(id);
+            }
+            document.descriptionTerms = description;
+            pending.clear(id);
+        }
+    }
+
+    private int[] termIds(String[] tokens) {
+        int[] ids = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            ids[i] = termOf(tokens[i]).id;
+        }
+
+        return ids;
+    }
+
+    // Номера известных терминов без добавления новых; -1 у неизвестных
+    private int[] lookupIds(String[] tokens) {
+        int[] ids = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            Term term = terms.get(tokens[i]);
+            ids[i] = term != null ? term.id : -1;
+        }
+
+        return ids;
+    }
+
+    private Term termOf(String text) {
+        Term term = terms.get(text);
+        if (term != null) return term;
+
+        int id = freeTermIds.isEmpty() ? nextTermId++ : freeTermIds.pop();
+        if (id >= termsById.length) termsById = Arrays.copyOf(termsById, termsById.length << 1);
+        term = new Term(id, text);
+        termsById[id] = term;
+        terms.put(text, term);
+
+        return term;
+    }
+
+    private static int[] distinct(int[] ids) {
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+
+        int length = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (length == 0 || sorted[length - 1] != sorted[i]) sorted[length++] = sorted[i];
+        }
+
+        return length == sorted.length ? sorted : Arrays.copyOf(sorted, length);
+    }
+
+    private int[] candidates(Clause clause) {
+        clause.termIds = lookupIds(clause.terms);
+        int[] ids = null;
+        for (int i = 0; i < clause.terms.length; i++) {
+            int[] termIds = clause.prefix && i == clause.terms.length - 1
+                    ? prefixIds(clause.terms[i])
+                    : exactIds(clause.terms[i]);
+            ids = ids == null ? termIds : intersect(ids, termIds);
+            if (ids.length == 0) break;
+        }
+
+        return ids;
+    }
+
+    private int[] exactIds(String term) {
+        Term found = terms.get(term);
+        return found != null ? found.postings.decode() : new int[0];
+    }
+
+    private int[] prefixIds(String prefix) {
+        SortedMap<String, Term> matching = terms.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (matching.size() == 1) return matching.values().iterator().next().postings.decode();
+
+        int total = 0;
+        for (Term term : matching.values()) {
+            total += term.postings.count;
+        }
+
+        int[] ids = new int[total];
+        int length = 0;
+        for (Term term : matching.values()) {
+            length = term.postings.decodeInto(ids, length);
+        }
+        Arrays.sort(ids);
+
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) ids[distinct++] = ids[i];
+        }
+
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    // Сумма по условиям: редкость условия (idf) на сглаженное число вхождений, вхождения в названии весомее.
+    // Ноль, если фраза не нашлась целиком
+    private double score(Document document, List<Clause> clauses) {
+        int[] description = document.description != null
+                ? document.description : lookupIds(tokenize(document.loader.get()));
+        double score = 0;
+        for (Clause clause : clauses) {
+            int occurrences = NAME_WEIGHT * occurrences(document.name, clause)
+                    + occurrences(description, clause);
+            if (occurrences == 0) return 0;
+
+            double idf = Math.log(1 + (double) documents.size() / clause.ids.length);
+            score += idf * Math.log1p(occurrences);
+        }
+
+        return score;
+    }
+
+    private int occurrences(int[] tokens, Clause clause) {
+        int count = 0;
+        int last = clause.terms.length - 1;
+        for (int i = 0; i + last < tokens.length; i++) {
+            boolean match = true;
+            for (int j = 0; j <= last && match; j++) {
+                int token = tokens[i + j];
+                match = token >= 0 && (clause.prefix && j == last
+                        ? termsById[token].text.startsWith(clause.terms[j]) : token == clause.termIds[j]);
+            }
+            if (match) count++;
+        }
+
+        return count;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int length = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[length++] = a[i];
+                i++;
+                j++;
+            }
+        }
+
+        return length == result.length ? result : Arrays.copyOf(result, length);
+    }
+
+    private void removePosting(int term, int id) {
+        Postings postings = termsById[term].postings;
+        postings.remove(id);
+        if (postings.count == 0) dropTerm(term);
+    }
+
+    private void dropTerm(int id) {
+        terms.remove(termsById[id].text);
+        termsById[id] = null;
+        freeTermIds.push(id);
+    }
+
+    // Возрастающий список id, разбитый на блоки не длиннее BLOCK_SIZE. В блоке первый id хранится как есть,
+    // остальные — разностями с предыдущим в varint по 7 бит на байт. Дописывание в конец идёт в последний блок,
+    // а вставка не по порядку и удаление перекодируют только один блок, найденный двоичным поиском
+    static final class Postings {
+        static final int BLOCK_SIZE = 128;
+
+        private final List<Block> blocks = new ArrayList<>();
+        private int count;
+
+        void add(int id) {
+            Block last = blocks.isEmpty() ? null : blocks.getLast();
+            if (last == null || id > last.last) {
+                if (last == null || last.count == BLOCK_SIZE) {
+                    blocks.add(new Block(id));
+                } else {
+                    last.append(id);
+                }
+                count++;
+                return;
+            }
+
+            int index = Math.max(blockOf(id), 0);
+            int[] ids = blocks.get(index).decode();
+            int position = Arrays.binarySearch(ids, id);
+            if (position >= 0) return;
+
+            position = -position - 1;
+            int[] updated = new int[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, position);
+            updated[position] = id;
+            System.arraycopy(ids, position, updated, position + 1, ids.length - position);
+            count++;
+
+            if (updated.length <= BLOCK_SIZE) {
+                blocks.set(index, Block.of(updated, 0, updated.length));
+            } else {
+                int half = updated.length / 2;
+                blocks.set(index, Block.of(updated, 0, half));
+                blocks.add(index + 1, Block.of(updated, half, updated.length));
+            }
+        }
+
+        void remove(int id) {
+            int index = blockOf(id);
+            if (index < 0 || id > blocks.get(index).last) return;
+
+            int[] ids = blocks.get(index).decode();
+            int position = Arrays.binarySearch(ids, id);
+            if (position < 0) return;
+
+            count--;
+            if (ids.length == 1) {
+                blocks.remove(index);
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, ids.length - position - 1);
+            blocks.set(index, Block.of(ids, 0, ids.length - 1));
+        }
+
+        // Один проход по списку: каждый блок перекодируется не больше одного раза
+        void removeAll(BitSet removed) {
+            List<Block> kept = new ArrayList<>(blocks.size());
+            for (Block block : blocks) {
+                int[] ids = block.decode();
+                int length = 0;
+                for (int id : ids) {
+                    if (!removed.get(id)) ids[length++] = id;
+                }
+
+                count -= ids.length - length;
+                if (length == ids.length) {
+                    kept.add(block);
+                } else if (length > 0) {
+                    kept.add(Block.of(ids, 0, length));
+                }
+            }
+
+            blocks.clear();
+            blocks.addAll(kept);
+        }
+
+        int[] decode() {
+            int[] ids = new int[count];
+            decodeInto(ids, 0);
+            return ids;
+        }
+
+        int decodeInto(int[] target, int offset) {
+            for (Block block : blocks) {
+                offset = block.decodeInto(target, offset);
+            }
+
+            return offset;
+        }
+
+        int blockCount() {
+            return blocks.size();
+        }
+
+        // Последний блок, начинающийся не позже id; -1, если id меньше всех
+        private int blockOf(int id) {
+            int low = 0;
+            int high = blocks.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (blocks.get(mid).first <= id) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            return high;
+        }
+    }
+
+    private static final class Block {
+        final int first;
+        int last;
+        int count = 1;
+        private byte[] data = new byte[8];
+        private int length;
+
+        Block(int first) {
+            this.first = first;
+            this.last = first;
+        }
+
+        static Block of(int[] ids, int from, int to) {
+            Block block = new Block(ids[from]);
+            for (int i = from + 1; i < to; i++) {
+                block.append(ids[i]);
+            }
+
+            return block;
+        }
+
+        void append(int id) {
+            int delta = id - last;
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length << 1, length + 5));
+            }
+            while ((delta & ~0x7F) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+
+            last = id;
+            count++;
+        }
+
+        int[] decode() {
+            int[] ids = new int[count];
+            decodeInto(ids, 0);
+            return ids;
+        }
+
+        int decodeInto(int[] target, int offset) {
+            int id = first;
+            target[offset++] = id;
+            int position = 0;
+            while (position < length) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                id += delta;
+                target[offset++] = id;
+            }
+
+            return offset;
+        }
+    }
+}
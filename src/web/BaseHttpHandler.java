@@ -1,11 +1,30 @@
 package web;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.sun.net.httpserver.HttpExchange;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Status;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
 
 import java.io.IOException;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public abstract class BaseHttpHandler {
+    protected static final int DEFAULT_PAGE_SIZE = 100;
+    protected static final int MAX_PAGE_SIZE = 1000;
 
     protected String readText(HttpExchange exchange) throws IOException {
         return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
@@ -20,10 +39,123 @@ public abstract class BaseHttpHandler {
         exchange.close();
     }
 
+    protected JsonArray readArray(HttpExchange exchange) throws IOException {
+        return JsonParser.parseString(readText(exchange)).getAsJsonArray();
+    }
+
+    // Тип объекта задаётся полем type, по умолчанию TASK
+    protected Task parseItem(Gson gson, JsonObject object) {
+        TaskType type = object.has("type") ? TaskType.valueOf(object.get("type").getAsString()) : TaskType.TASK;
+
+        return switch (type) {
+            case TASK -> gson.fromJson(object, Task.class);
+            case EPIC -> gson.fromJson(object, Epic.class);
+            case SUBTASK -> gson.fromJson(object, Subtask.class);
+        };
+    }
+
+    protected Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) return params;
+
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+
+        return params;
+    }
+
+    protected Status statusParam(Map<String, String> params) {
+        String value = params.get("status");
+        if (value == null) return null;
+
+        try {
+            return Status.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный статус " + value);
+        }
+    }
+
+    protected Integer intParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) return null;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Параметр " + name + " должен быть числом");
+        }
+    }
+
+    protected LocalDateTime timeParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) return null;
+
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Параметр " + name + " должен быть датой и временем");
+        }
+    }
+
+    protected boolean isPageRequest(Map<String, String> params) {
+        return params.containsKey("limit") || params.containsKey("after");
+    }
+
+    protected int limitParam(Map<String, String> params) {
+        Integer limit = intParam(params, "limit");
+        if (limit == null) return DEFAULT_PAGE_SIZE;
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+
+        return limit;
+    }
+
+    protected int afterParam(Map<String, String> params) {
+        Integer after = intParam(params, "after");
+        return after != null ? after : 0;
+    }
+
+    // Страница из уже отфильтрованного списка, упорядоченного по id; одна запись сверх limit — признак продолжения
+    protected List<Task> pageOf(List<Task> items, int after, int limit) {
+        List<Task> page = new ArrayList<>();
+        for (Task item : items) {
+            if (page.size() > limit) break;
+            if (item.getId() > after) page.add(item);
+        }
+
+        return page;
+    }
+
+    // Отдаёт не больше limit записей; если есть следующие, id последней отданной записи уходит в X-Next-Cursor
+    protected void sendPage(HttpExchange exchange, Gson gson, List<? extends Task> items, int limit) throws IOException {
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            exchange.getResponseHeaders().add("X-Next-Cursor", String.valueOf(items.getLast().getId()));
+        }
+
+        sendText(exchange, gson.toJson(items), 200);
+    }
+
+    protected void sendBadRequest(HttpExchange exchange, String message) throws IOException {
+        sendText(exchange, "Ошибка! Сообщение: " + message, 400);
+    }
+
     protected void sendNotFound(HttpExchange exchange, String message) throws IOException {
         sendText(exchange, "Ошибка! Сообщение: " + message, 404);
     }
 
+    // Если id занят сущностью другого типа, сообщение подсказывает, где её искать
+    protected String notFoundMessage(TaskManager manager, int id, String message) {
+        TaskType actual = manager.getTypeById(id);
+        return actual != null ? message + ": ID " + id + " принадлежит объекту типа " + actual : message;
+    }
+
     protected void sendServerError(HttpExchange exchange, String message) throws IOException {
         sendText(exchange, "Ошибка! Сообщение: " + message, 500);
     }
@@ -0,0 +1,108 @@
+package web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import exception.NotFoundException;
+import interfaces.TaskManager;
+import model.Task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// POST /batch — массив объектов: все без id создаются, все с id обновляются; тип задаётся полем type
+// (TASK по умолчанию). DELETE /batch — массив id. Пакет применяется целиком или не применяется
+public class BatchHandler extends BaseHttpHandler implements HttpHandler {
+
+    private final TaskManager manager;
+    private final Gson gson;
+
+    public BatchHandler(TaskManager manager, Gson gson) {
+        this.manager = manager;
+        this.gson = gson;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) {
+        try {
+            if (!exchange.getRequestURI().getPath().equals("/batch")) {
+                sendNotFound(exchange, "Некорректный путь");
+                return;
+            }
+
+            switch (exchange.getRequestMethod()) {
+                case "POST":
+                    handlePost(exchange);
+                    break;
+                case "DELETE":
+                    handleDelete(exchange);
+                    break;
+                default:
+                    sendServerError(exchange, "Метод не поддерживается");
+            }
+        } catch (Exception e) {
+            try {
+                sendServerError(exchange, "Ошибка сервера: " + e.getMessage());
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        }
+    }
+
+    private void handlePost(HttpExchange exchange) throws IOException {
+        List<Task> items = new ArrayList<>();
+        try {
+            for (JsonElement element : readArray(exchange)) {
+                items.add(parseItem(gson, element.getAsJsonObject()));
+            }
+        } catch (JsonParseException | IllegalStateException | IllegalArgumentException e) {
+            sendBadRequest(exchange, "Некорректный пакет: " + e.getMessage());
+            return;
+        }
+
+        long created = items.stream().filter(item -> item.getId() == 0).count();
+        if (created != 0 && created != items.size()) {
+            sendBadRequest(exchange, "Пакет должен содержать только новые или только существующие объекты");
+            return;
+        }
+
+        try {
+            if (created > 0) {
+                manager.createAll(items);
+                sendText(exchange, gson.toJson(items.stream().map(Task::getId).toList()), 201);
+            } else {
+                manager.updateAll(items);
+                sendText(exchange, "Пакет обновлен", 201);
+            }
+        } catch (NotFoundException e) {
+            sendNotFound(exchange, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendHasInteractions(exchange, e.getMessage());
+        }
+    }
+
+    private void handleDelete(HttpExchange exchange) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try {
+            for (JsonElement element : readArray(exchange)) {
+                ids.add(element.getAsInt());
+            }
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException | NumberFormatException e) {
+            sendBadRequest(exchange, "Некорректный пакет: " + e.getMessage());
+            return;
+        }
+
+        try {
+            manager.deleteAll(ids);
+            sendText(exchange, "Пакет удален", 200);
+        } catch (NotFoundException e) {
+            sendNotFound(exchange, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
+        }
+    }
+
+}
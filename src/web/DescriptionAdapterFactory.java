@@ -0,0 +1,44 @@
+package web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import model.Task;
+
+import java.io.IOException;
+
+// Gson сериализует поля, а отложенное описание попадает в поле только после загрузки,
+// поэтому для таких задач оно подставляется через getDescription
+public class DescriptionAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!Task.class.isAssignableFrom(type.getRawType())) return null;
+
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+
+        return new TypeAdapter<>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                if (value == null || ((Task) value).isDescriptionLoaded()) {
+                    delegate.write(out, value);
+                    return;
+                }
+
+                JsonElement tree = delegate.toJsonTree(value);
+                tree.getAsJsonObject().addProperty("description", ((Task) value).getDescription());
+                elements.write(out, tree);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                return delegate.read(in);
+            }
+        };
+    }
+}
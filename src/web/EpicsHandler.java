@@ -7,9 +7,12 @@ import com.sun.net.httpserver.HttpHandler;
 import interfaces.TaskManager;
 import model.Epic;
 import model.Subtask;
+import model.Task;
+import model.TaskType;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 public class EpicsHandler extends BaseHttpHandler implements HttpHandler {
 
@@ -60,11 +63,32 @@ public class EpicsHandler extends BaseHttpHandler implements HttpHandler {
             if (epic != null) {
                 sendText(exchange, gson.toJson(epic), 200);
             } else {
-                sendNotFound(exchange, "Эпик не найден");
+                sendNotFound(exchange, notFoundMessage(manager, id, "Эпик не найден"));
             }
         } else if (path.equals("/epics")) {
-            List<Epic> epics = manager.getAllEpics();
-            sendText(exchange, gson.toJson(epics), 200);
+            Map<String, String> params = queryParams(exchange);
+            if (params.isEmpty()) {
+                List<Epic> epics = manager.getAllEpics();
+                sendText(exchange, gson.toJson(epics), 200);
+                return;
+            }
+
+            try {
+                if (!isPageRequest(params)) {
+                    List<Task> epics = manager.query(TaskType.EPIC, statusParam(params), null);
+                    sendText(exchange, gson.toJson(epics), 200);
+                    return;
+                }
+
+                int limit = limitParam(params);
+                int after = afterParam(params);
+                List<? extends Task> page = params.containsKey("status")
+                        ? pageOf(manager.query(TaskType.EPIC, statusParam(params), null), after, limit)
+                        : manager.getEpicsPage(after, limit + 1);
+                sendPage(exchange, gson, page, limit);
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(exchange, e.getMessage());
+            }
         } else {
             sendNotFound(exchange, "Некорректный путь");
         }
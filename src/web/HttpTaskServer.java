@@ -4,11 +4,14 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.sun.net.httpserver.HttpServer;
 import interfaces.TaskManager;
+import service.ConcurrentTaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HttpTaskServer {
 
@@ -16,22 +19,37 @@ public class HttpTaskServer {
     private final HttpServer server;
     private final TaskManager manager;
     private final Gson gson;
+    private final ExecutorService executor;
 
     public HttpTaskServer(TaskManager manager) throws IOException {
-        this.manager = manager;
+        this(manager, 1);
+    }
+
+    // При нескольких потоках обработки менеджер оборачивается в ConcurrentTaskManager
+    public HttpTaskServer(TaskManager manager, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("Число потоков должно быть положительным");
+
+        this.manager = threads > 1 && !(manager instanceof ConcurrentTaskManager)
+                ? new ConcurrentTaskManager(manager) : manager;
+        this.executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
         gson = new GsonBuilder()
                 .serializeNulls()
                 .registerTypeAdapter(Duration.class, new TimeAdapter.DurationAdapter())
                 .registerTypeAdapter(LocalDateTime.class, new TimeAdapter.LocalDateTimeAdapter())
+                .registerTypeAdapterFactory(new DescriptionAdapterFactory())
                 .create();
 
         server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        server.setExecutor(executor);
 
-        server.createContext("/tasks", new TasksHandler(manager, gson));
-        server.createContext("/subtasks", new SubtasksHandler(manager, gson));
-        server.createContext("/epics", new EpicsHandler(manager, gson));
-        server.createContext("/history", new HistoryHandler(manager, gson));
-        server.createContext("/prioritized", new PrioritizedTasksHandler(manager, gson));
+        server.createContext("/tasks", new TasksHandler(this.manager, gson));
+        server.createContext("/subtasks", new SubtasksHandler(this.manager, gson));
+        server.createContext("/epics", new EpicsHandler(this.manager, gson));
+        server.createContext("/history", new HistoryHandler(this.manager, gson));
+        server.createContext("/prioritized", new PrioritizedTasksHandler(this.manager, gson));
+        server.createContext("/search", new SearchHandler(this.manager, gson));
+        server.createContext("/batch", new BatchHandler(this.manager, gson));
+        server.createContext("/schedule", new ScheduleHandler(this.manager, gson));
     }
 
     public void start() {
@@ -42,5 +60,8 @@ public class HttpTaskServer {
     public void stop() {
         System.out.println("Сервер остановлен");
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
     }
 }
@@ -7,6 +7,7 @@ import interfaces.TaskManager;
 import model.Task;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class PrioritizedTasksHandler extends BaseHttpHandler implements HttpHandler {
@@ -31,7 +32,7 @@ public class PrioritizedTasksHandler extends BaseHttpHandler implements HttpHand
         }
 
         try {
-            List<Task> tasks = manager.getAllTasks();
+            List<Task> tasks = new ArrayList<>(manager.getAllTasks());
             tasks.sort((a, b) -> {
                 if (a.getStartTime() == null) return 1;
                 if (b.getStartTime() == null) return -1;
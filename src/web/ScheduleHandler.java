@@ -0,0 +1,77 @@
+package web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import exception.NotFoundException;
+import interfaces.TaskManager;
+import model.Task;
+import model.TaskType;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// POST /schedule?from=...&to=... — массив задач и подзадач, которые ставятся по порядку на самое раннее
+// свободное время окна; to необязателен. В ответе — размещённые объекты с id и временем начала
+public class ScheduleHandler extends BaseHttpHandler implements HttpHandler {
+
+    private final TaskManager manager;
+    private final Gson gson;
+
+    public ScheduleHandler(TaskManager manager, Gson gson) {
+        this.manager = manager;
+        this.gson = gson;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) {
+        try {
+            if (!exchange.getRequestMethod().equals("POST") || !exchange.getRequestURI().getPath().equals("/schedule")) {
+                sendServerError(exchange, "Некорректный путь или метод");
+                return;
+            }
+
+            LocalDateTime from;
+            LocalDateTime to;
+            List<Task> items = new ArrayList<>();
+            try {
+                Map<String, String> params = queryParams(exchange);
+                from = timeParam(params, "from");
+                to = timeParam(params, "to");
+                if (from == null) throw new IllegalArgumentException("Не задан параметр from");
+                if (to != null && to.isBefore(from)) throw new IllegalArgumentException("Конец интервала раньше его начала");
+
+                // Ошибки самого запроса отсекаются здесь: от менеджера ниже ожидается только отказ из-за занятого окна
+                for (JsonElement element : readArray(exchange)) {
+                    Task item = parseItem(gson, element.getAsJsonObject());
+                    if (item.getType() == TaskType.EPIC) {
+                        throw new IllegalArgumentException("Время эпика рассчитывается по его подзадачам");
+                    }
+                    if (item.getDuration() != null && item.getDuration().isNegative()) {
+                        throw new IllegalArgumentException("Длительность должна быть неотрицательной");
+                    }
+                    items.add(item);
+                }
+            } catch (JsonParseException | IllegalStateException | IllegalArgumentException e) {
+                sendBadRequest(exchange, "Некорректный запрос: " + e.getMessage());
+                return;
+            }
+
+            try {
+                manager.scheduleAll(items, from, to);
+                sendText(exchange, gson.toJson(items), 201);
+            } catch (NotFoundException e) {
+                sendNotFound(exchange, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendHasInteractions(exchange, e.getMessage());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
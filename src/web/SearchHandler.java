@@ -0,0 +1,50 @@
+package web;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import interfaces.TaskManager;
+import model.Task;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class SearchHandler extends BaseHttpHandler implements HttpHandler {
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final TaskManager manager;
+    private final Gson gson;
+
+    public SearchHandler(TaskManager manager, Gson gson) {
+        this.manager = manager;
+        this.gson = gson;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) {
+        try {
+            if (!exchange.getRequestMethod().equals("GET") || !exchange.getRequestURI().getPath().equals("/search")) {
+                sendServerError(exchange, "Некорректный путь или метод");
+                return;
+            }
+
+            Map<String, String> params = queryParams(exchange);
+            String query = params.get("q");
+            if (query == null || query.isBlank()) {
+                sendBadRequest(exchange, "Не задан поисковый запрос");
+                return;
+            }
+
+            try {
+                Integer limit = intParam(params, "limit");
+                List<Task> found = manager.search(query, limit != null ? limit : DEFAULT_LIMIT);
+                sendText(exchange, gson.toJson(found), 200);
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(exchange, e.getMessage());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
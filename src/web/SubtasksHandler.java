@@ -3,11 +3,15 @@ package web;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import exception.NotFoundException;
 import interfaces.TaskManager;
 import model.Subtask;
+import model.Task;
+import model.TaskType;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 public class SubtasksHandler extends BaseHttpHandler implements HttpHandler {
 
@@ -54,11 +58,34 @@ public class SubtasksHandler extends BaseHttpHandler implements HttpHandler {
             if (subtask != null) {
                 sendText(exchange, gson.toJson(subtask), 200);
             } else {
-                sendNotFound(exchange, "Подзадача не найдена");
+                sendNotFound(exchange, notFoundMessage(manager, id, "Подзадача не найдена"));
             }
         } else if (path.equals("/subtasks")) {
-            List<Subtask> subtasks = manager.getAllSubtasks();
-            sendText(exchange, gson.toJson(subtasks), 200);
+            Map<String, String> params = queryParams(exchange);
+            if (params.isEmpty()) {
+                List<Subtask> subtasks = manager.getAllSubtasks();
+                sendText(exchange, gson.toJson(subtasks), 200);
+                return;
+            }
+
+            try {
+                if (!isPageRequest(params)) {
+                    List<Task> subtasks = manager.query(TaskType.SUBTASK, statusParam(params), intParam(params, "epic"));
+                    sendText(exchange, gson.toJson(subtasks), 200);
+                    return;
+                }
+
+                int limit = limitParam(params);
+                int after = afterParam(params);
+                List<? extends Task> page = params.containsKey("status") || params.containsKey("epic")
+                        ? pageOf(manager.query(TaskType.SUBTASK, statusParam(params), intParam(params, "epic")), after, limit)
+                        : manager.getSubtasksPage(after, limit + 1);
+                sendPage(exchange, gson, page, limit);
+            } catch (NotFoundException e) {
+                sendNotFound(exchange, "Эпик не найден");
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(exchange, e.getMessage());
+            }
         } else if (path.matches("/epics/\\d+/subtasks")) {
             int epicId = Integer.parseInt(path.split("/")[2]);
             List<Subtask> subtasks = manager.getSubtaskByEpicId(epicId);
@@ -5,9 +5,11 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import interfaces.TaskManager;
 import model.Task;
+import model.TaskType;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 public class TasksHandler extends BaseHttpHandler implements HttpHandler {
 
@@ -54,11 +56,32 @@ public class TasksHandler extends BaseHttpHandler implements HttpHandler {
             if (task != null) {
                 sendText(exchange, gson.toJson(task), 200);
             } else {
-                sendNotFound(exchange, "Задача не найдена");
+                sendNotFound(exchange, notFoundMessage(manager, id, "Задача не найдена"));
             }
         } else if (path.equals("/tasks")) {
-            List<Task> tasks = manager.getAllTasks();
-            sendText(exchange, gson.toJson(tasks), 200);
+            Map<String, String> params = queryParams(exchange);
+            if (params.isEmpty()) {
+                List<Task> tasks = manager.getAllTasks();
+                sendText(exchange, gson.toJson(tasks), 200);
+                return;
+            }
+
+            try {
+                if (!isPageRequest(params)) {
+                    List<Task> tasks = manager.query(TaskType.TASK, statusParam(params), null);
+                    sendText(exchange, gson.toJson(tasks), 200);
+                    return;
+                }
+
+                int limit = limitParam(params);
+                int after = afterParam(params);
+                List<Task> page = params.containsKey("status")
+                        ? pageOf(manager.query(TaskType.TASK, statusParam(params), null), after, limit)
+                        : manager.getTasksPage(after, limit + 1);
+                sendPage(exchange, gson, page, limit);
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(exchange, e.getMessage());
+            }
         } else {
             sendNotFound(exchange, "Некорректный путь");
         }
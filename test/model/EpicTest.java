@@ -2,6 +2,10 @@ package model;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class EpicTest {
@@ -33,4 +37,22 @@ class EpicTest {
         Epic epic = new Epic("Name", "Description");
         assertEquals(Status.NEW, epic.getStatus(), "Новый эпик должен иметь статус NEW.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void epicEndTimeShouldBeLatestSubtaskEnd() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Subtask first = new Subtask("Sub1", "Description", 2, Status.NEW, 1, Duration.ofMinutes(30), start);
+        Subtask last = new Subtask("Sub2", "Description", 3, Status.NEW, 1, Duration.ofMinutes(15),
+                start.plusHours(3));
+        Epic epic = new Epic("Name", "Description", 1);
+        epic.updateTimeAndDuration(List.of(first, last));
+
+        assertEquals(start, epic.getStartTime());
+        assertEquals(Duration.ofMinutes(45), epic.getDuration(), "Длительность эпика — сумма подзадач");
+        assertEquals(start.plusHours(3).plusMinutes(15), epic.getEndTime(), "Конец эпика — конец последней подзадачи");
+
+        epic.untrackSubtask(last.getId());
+        assertEquals(start.plusMinutes(30), epic.getEndTime(), "Удаление крайней подзадачи должно сдвигать конец");
+        assertEquals(Duration.ofMinutes(30), epic.getDuration());
+    }
+}
@@ -0,0 +1,99 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest {
+
+    @Test
+    void parallelWritersShouldKeepIdsAndEpicsConsistent() throws InterruptedException {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(new InMemoryTaskManager());
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Epic epic = new Epic("Epic" + i, "Description");
+            manager.createEpic(epic);
+            epics.add(epic);
+        }
+
+        int threads = 8;
+        int perThread = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < perThread; i++) {
+                        Epic epic = epics.get(random.nextInt(epics.size()));
+                        // У каждого потока свой непересекающийся отрезок времени
+                        LocalDateTime time = base.plusHours((long) thread * perThread + i);
+                        Subtask subtask = new Subtask("Subtask", "Description", 0,
+                                Status.values()[random.nextInt(3)], epic.getId(), Duration.ofMinutes(30), time);
+                        manager.createSubtask(subtask);
+                        manager.createTask(new Task("Task", "Description"));
+
+                        manager.getSubtaskById(subtask.getId());
+                        manager.getAllEpics();
+                        manager.getHistory();
+
+                        if (i % 3 == 0) {
+                            subtask.setStatus(Status.DONE);
+                            manager.updateSubtask(subtask);
+                        }
+                        if (i % 5 == 0) {
+                            manager.deleteSubtaskById(subtask.getId());
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "Потоки должны завершиться");
+        assertTrue(errors.isEmpty(), "Параллельные операции не должны падать: " + errors.peek());
+
+        List<Task> tasks = manager.getAllTasks();
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        assertEquals(threads * perThread, tasks.size());
+        assertEquals(threads * perThread - threads * (perThread / 5), subtasks.size());
+
+        Set<Integer> ids = new HashSet<>();
+        tasks.forEach(task -> ids.add(task.getId()));
+        subtasks.forEach(subtask -> ids.add(subtask.getId()));
+        assertEquals(tasks.size() + subtasks.size(), ids.size(), "Все id должны быть уникальными");
+
+        for (Epic epic : epics) {
+            List<Subtask> children = manager.getSubtaskByEpicId(epic.getId());
+            Duration expected = children.stream().map(Subtask::getDuration).reduce(Duration.ZERO, Duration::plus);
+            assertEquals(expected, epic.getDuration(), "Длительность эпика должна совпадать с подзадачами");
+
+            boolean allDone = children.stream().allMatch(s -> s.getStatus() == Status.DONE);
+            boolean allNew = children.stream().allMatch(s -> s.getStatus() == Status.NEW);
+            Status status = children.isEmpty() || allNew ? Status.NEW : allDone ? Status.DONE : Status.IN_PROGRESS;
+            assertEquals(status, epic.getStatus(), "Статус эпика должен совпадать с подзадачами");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package service;
+
+import interfaces.TaskListener;
+import model.Task;
+import model.TaskEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBusTest {
+
+    private static List<TaskEvent> created(int count) {
+        List<TaskEvent> events = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            events.add(new TaskEvent(TaskEvent.Kind.CREATED, null, new Task("Task" + i, "Description", i, null)));
+        }
+        return events;
+    }
+
+    @Test
+    void asyncSubscriberShouldReceiveAllEventsInOrderAndInBatches() throws InterruptedException {
+        EventBus bus = new EventBus();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> ids = Collections.synchronizedList(new ArrayList<>());
+
+        TaskListener.Subscription subscription = bus.subscribeAsync(events -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batchSizes.add(events.size());
+            events.forEach(event -> ids.add(event.getId()));
+        }, 100, 10);
+
+        List<TaskEvent> events = created(25);
+        bus.publish(events.subList(0, 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        bus.publish(events.subList(1, 25));
+        release.countDown();
+        subscription.close();
+
+        assertEquals(25, ids.size(), "После закрытия подписки очередь должна быть доставлена целиком");
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i + 1, (int) ids.get(i), "События должны приходить в порядке публикации");
+        }
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10), "Пачка не должна превышать maxBatch");
+        assertTrue(batchSizes.size() < 25, "Накопившиеся события должны доставляться пачками");
+        assertFalse(bus.hasListeners());
+    }
+
+    @Test
+    void asyncListenerErrorShouldNotStallPublishers() throws InterruptedException {
+        EventBus bus = new EventBus();
+        TaskListener.Subscription subscription = bus.subscribeAsync(events -> {
+            throw new AssertionError("Сбой подписчика");
+        }, 1, 1);
+
+        Thread publisher = new Thread(() -> bus.publish(created(50)));
+        publisher.setDaemon(true);
+        publisher.start();
+        publisher.join(5000);
+
+        assertFalse(publisher.isAlive(), "Публикатор не должен зависнуть на заполненной очереди");
+        subscription.close();
+        assertEquals(50, bus.getFailureCount());
+    }
+
+    @Test
+    void publishAfterCloseShouldNotBlock() throws InterruptedException {
+        EventBus bus = new EventBus();
+        List<TaskListener.Subscription> async = new ArrayList<>();
+        // Синхронный подписчик закрывает асинхронного посреди рассылки: публикатор уже держит старый список
+        bus.subscribe(events -> async.getFirst().close());
+        async.add(bus.subscribeAsync(events -> { }, 1, 1));
+
+        Thread publisher = new Thread(() -> bus.publish(created(10)));
+        publisher.setDaemon(true);
+        publisher.start();
+        publisher.join(5000);
+
+        assertFalse(publisher.isAlive(), "Доставка закрытому подписчику не должна блокировать публикатора");
+        assertEquals(0, bus.getFailureCount());
+    }
+
+    @Test
+    void failingListenerShouldNotBreakOtherSubscribers() {
+        EventBus bus = new EventBus();
+        List<TaskEvent> received = new ArrayList<>();
+        bus.subscribe(events -> {
+            throw new IllegalStateException("Сбой подписчика");
+        });
+        bus.subscribe(received::addAll);
+
+        bus.publish(created(3));
+
+        assertEquals(3, received.size());
+        assertEquals(1, bus.getFailureCount());
+        assertThrows(IllegalArgumentException.class, () -> bus.subscribeAsync(events -> { }, 0, 1));
+    }
+}
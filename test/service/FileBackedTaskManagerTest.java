@@ -1,17 +1,27 @@
 package service;
 
+import exception.ManagerSaveException;
 import model.Epic;
 import model.Status;
 import model.Subtask;
 import model.Task;
+import model.TaskEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import storage.Durability;
+import storage.SlotRecordFile;
+import storage.TaskJournal;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -132,4 +142,496 @@ public class FileBackedTaskManagerTest {
         assertNotNull(loadedManager.getTaskById(task.getId()), "Задача должна загрузиться из файла");
         assertNotNull(loadedManager.getEpicById(epic.getId()), "Эпик должен загрузиться из файла");
     }
+
+    @Test
+    void journalModeShouldAppendRecordsInsteadOfRewritingFile() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        Task task = new Task("Task", "Description");
+        journaled.createTask(task);
+        task.setStatus(Status.DONE);
+        journaled.updateTask(task);
+        journaled.close();
+
+        assertEquals(0, tempFile.length(), "Снимок не должен перезаписываться при каждой операции");
+        List<String> records = Files.readAllLines(FileBackedTaskManager.journalFile(tempFile).toPath());
+        assertEquals(2, records.size(), "Каждая операция должна дописывать одну запись в журнал");
+    }
+
+    @Test
+    void loadFromFileShouldReplaySnapshotAndJournal() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        Task task = new Task("Task", "Description");
+        Epic epic = new Epic("Epic", "Description");
+        journaled.createTask(task);
+        journaled.createEpic(epic);
+        journaled.save();
+
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        journaled.createSubtask(subtask);
+        subtask.setStatus(Status.DONE);
+        journaled.updateSubtask(subtask);
+        journaled.deleteTaskById(task.getId());
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL);
+
+        assertTrue(loaded.getAllTasks().isEmpty(), "Удаление из журнала должно примениться к снимку");
+        assertEquals(1, loaded.getAllSubtasks().size());
+        assertEquals(Status.DONE, loaded.getSubtaskById(subtask.getId()).getStatus());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus(),
+                "Статус эпика должен пересчитываться после воспроизведения журнала");
+        loaded.close();
+    }
+
+    @Test
+    void tornLastJournalRecordShouldBeDroppedOnLoad() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        Task task = new Task("Task", "Description");
+        journaled.createTask(task);
+        journaled.close();
+        File journalFile = FileBackedTaskManager.journalFile(tempFile);
+        Files.writeString(journalFile.toPath(), "PUT,2,TASK,Обо", StandardOpenOption.APPEND);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL);
+        assertEquals(List.of(task), loaded.getAllTasks());
+        Task next = new Task("Next", "Description");
+        loaded.createTask(next);
+        loaded.close();
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL);
+        assertEquals(2, reloaded.getAllTasks().size(), "Новая запись не должна склеиться с оборванной");
+        reloaded.close();
+    }
+
+    @Test
+    void corruptJournalRecordShouldFailLoad() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        journaled.createTask(new Task("Task1", "Description"));
+        journaled.createTask(new Task("Task2", "Description"));
+        journaled.close();
+        File journalFile = FileBackedTaskManager.journalFile(tempFile);
+        List<String> records = new ArrayList<>(Files.readAllLines(journalFile.toPath()));
+        records.add(1, "PUT,мусор");
+        Files.write(journalFile.toPath(), records);
+
+        assertThrows(ManagerSaveException.class,
+                () -> FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL));
+    }
+
+    @Test
+    void batchShouldPersistOnceAndSurviveReload() throws IOException {
+        FileBackedTaskManager snapshot = new FileBackedTaskManager(tempFile);
+        Epic epic = new Epic("Epic", "Description");
+        snapshot.createEpic(epic);
+        List<Task> batch = List.of(new Task("Task1", "Description"), new Task("Task2", "Description"),
+                new Subtask("Subtask", "Description", epic.getId()));
+        snapshot.createAll(batch);
+        snapshot.deleteAll(List.of(batch.get(0).getId()));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of("Task2"), loaded.getAllTasks().stream().map(Task::getName).toList());
+        assertEquals(List.of(batch.get(2).getId()), loaded.getEpicById(epic.getId()).getSubtasksId());
+
+        File journalFile = File.createTempFile("journal", ".csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(journalFile, PersistenceMode.JOURNAL);
+        List<Task> imported = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            imported.add(new Task("Imported" + i, "Description"));
+        }
+        journaled.createAll(imported);
+        journaled.close();
+
+        assertEquals(100, Files.readAllLines(FileBackedTaskManager.journalFile(journalFile).toPath()).size());
+        FileBackedTaskManager replayed = FileBackedTaskManager.loadFromFile(journalFile, PersistenceMode.JOURNAL);
+        assertEquals(100, replayed.getAllTasks().size());
+        replayed.close();
+    }
+
+    @Test
+    void listenerShouldNotSeeChangeThatFailedToPersist() throws IOException {
+        List<TaskEvent> seen = new ArrayList<>();
+        manager.subscribe(seen::addAll);
+        manager.createTask(new Task("Saved", "Description"));
+        assertEquals(1, seen.size());
+        assertTrue(tempFile.length() > 0, "Событие должно приходить после записи снимка");
+
+        File blocked = new File(tempFile.getPath() + ".tmp");
+        assertTrue(blocked.mkdir());
+        assertThrows(ManagerSaveException.class, () -> manager.createTask(new Task("Lost", "Description")));
+        assertTrue(blocked.delete());
+
+        assertEquals(1, seen.size(), "Несохранённое изменение не должно рассылаться подписчикам");
+    }
+
+    @Test
+    void failedCompactionShouldBeReportedOnceAndKeepJournal() throws IOException {
+        File blocked = new File(tempFile.getPath() + ".tmp");
+        assertTrue(blocked.mkdir(), "Каталог на месте временного файла не даст записать снимок");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        journaled.setCompactionThresholds(Long.MAX_VALUE, 10);
+
+        for (int i = 0; i < 10; i++) {
+            journaled.createTask(new Task("Task" + i, "Description"));
+        }
+
+        assertThrows(ManagerSaveException.class, journaled::awaitCompaction);
+        assertDoesNotThrow(journaled::awaitCompaction, "Ошибка должна сообщаться один раз");
+        assertTrue(blocked.delete());
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL);
+        assertEquals(10, loaded.getAllTasks().size(), "Неудачная компакция не должна терять записи журнала");
+        loaded.close();
+    }
+
+    @Test
+    void externalCompactionShouldNotRaceWithWriters() throws Exception {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 2000; i++) {
+                    journaled.createTask(new Task("Task" + i, "Description"));
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            journaled.compact();
+            journaled.awaitCompaction();
+        }
+        writer.join();
+        journaled.close();
+
+        assertTrue(errors.isEmpty(), "Внешняя компакция не должна ломать запись: " + errors);
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL);
+        assertEquals(2000, loaded.getAllTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    void compactionShouldBoundJournalAndKeepAllTasks() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        journaled.setCompactionThresholds(Long.MAX_VALUE, 10);
+
+        for (int i = 0; i < 25; i++) {
+            journaled.createTask(new Task("Task" + i, "Description"));
+            journaled.awaitCompaction();
+        }
+        journaled.close();
+
+        List<String> records = Files.readAllLines(FileBackedTaskManager.journalFile(tempFile).toPath());
+        assertTrue(records.size() < 10, "Журнал должен усекаться после уплотнения");
+        assertTrue(Files.readString(tempFile.toPath()).contains("Task19"), "Снимок должен содержать задачи");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL);
+        assertEquals(25, loaded.getAllTasks().size(), "После уплотнения не должно теряться задач");
+        loaded.close();
+    }
+
+    @Test
+    void binarySnapshotShouldRoundTripAllFields() {
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, PersistenceMode.SNAPSHOT,
+                SnapshotFormat.BINARY);
+        LocalDateTime exactTime = LocalDateTime.of(2025, 3, 1, 10, 15, 42, 123_000_000);
+        Task task = new Task("Задача, с запятой", null, Status.IN_PROGRESS, Duration.ofMinutes(45), exactTime);
+        Epic epic = new Epic("Epic", "Description");
+        binary.createTask(task);
+        binary.createEpic(epic);
+        binary.createSubtask(new Subtask("Subtask", "Description", 0, Status.DONE, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 2, 9, 0)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        Task loadedTask = loaded.getTaskById(task.getId());
+        assertEquals("Задача, с запятой", loadedTask.getName());
+        assertNull(loadedTask.getDescription());
+        assertEquals(Status.IN_PROGRESS, loadedTask.getStatus());
+        assertEquals(Duration.ofMinutes(45), loadedTask.getDuration());
+        assertEquals(exactTime, loadedTask.getStartTime(), "Время должно сохраняться без потери точности");
+
+        Subtask loadedSubtask = loaded.getAllSubtasks().getFirst();
+        assertEquals(epic.getId(), loadedSubtask.getEpicId());
+        assertEquals(LocalDateTime.of(2025, 3, 2, 9, 0), loadedSubtask.getStartTime());
+        assertEquals(1, loaded.getEpicById(epic.getId()).getSubtasksId().size());
+    }
+
+    @Test
+    void convertSnapshotShouldPreserveTasksBetweenFormats() throws IOException {
+        Epic epic = new Epic("Epic", "Description");
+        manager.createTask(new Task("Task", "Description"));
+        manager.createEpic(epic);
+        manager.createSubtask(new Subtask("Subtask", "Description", epic.getId()));
+
+        File binaryFile = File.createTempFile("test", ".bin");
+        File csvFile = File.createTempFile("test", ".csv");
+        FileBackedTaskManager.convertSnapshot(tempFile, binaryFile, SnapshotFormat.BINARY);
+        FileBackedTaskManager.convertSnapshot(binaryFile, csvFile, SnapshotFormat.CSV);
+
+        assertEquals(Files.readString(tempFile.toPath()), Files.readString(csvFile.toPath()),
+                "Двойное преобразование должно давать исходный CSV");
+        assertEquals(1, FileBackedTaskManager.loadFromFile(binaryFile).getAllSubtasks().size());
+    }
+
+    @Test
+    void syncDurabilityShouldShareForceBetweenConcurrentWriters() throws Exception {
+        TaskJournal journal = new TaskJournal(FileBackedTaskManager.journalFile(tempFile));
+        journal.setDurability(Durability.SYNC, TaskJournal.DEFAULT_BATCH_MILLIS, TaskJournal.DEFAULT_BATCH_RECORDS);
+
+        int writers = 8;
+        int recordsPerWriter = 50;
+        CyclicBarrier round = new CyclicBarrier(writers);
+        Thread[] threads = new Thread[writers];
+        for (int i = 0; i < writers; i++) {
+            int writer = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < recordsPerWriter; j++) {
+                    try {
+                        // Писатели дописывают записи одновременно, так что каждому раунду есть что разделить
+                        round.await();
+                        journal.append("CLEAR,TASK" + writer);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        journal.close();
+
+        assertEquals(writers * recordsPerWriter, Files.readAllLines(journal.getFile().toPath()).size());
+        assertTrue(journal.getForceCount() < writers * recordsPerWriter / 2,
+                "Ожидающие писатели должны разделять один вызов force()");
+    }
+
+    @Test
+    void batchedDurabilityShouldPersistJournalRecords() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        // Таймер не успевает сработать, поэтому force() вызывается только по порогу в 16 записей и при flush
+        journaled.setDurability(Durability.BATCHED, 60_000, 16);
+
+        for (int i = 0; i < 40; i++) {
+            journaled.createTask(new Task("Task" + i, "Description"));
+        }
+        assertEquals(2, journaled.getForceCount(), "Журнал должен фиксироваться раз в 16 записей");
+        journaled.flush();
+        assertEquals(3, journaled.getForceCount(), "flush должен зафиксировать оставшиеся записи");
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL);
+        assertEquals(40, loaded.getAllTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    void transactionShouldWriteFinalStateOnCommitAndNothingOnRollback() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, PersistenceMode.JOURNAL);
+        Task task = new Task("Task", "Description");
+        journaled.createTask(task);
+        int recordsBefore = Files.readAllLines(FileBackedTaskManager.journalFile(tempFile).toPath()).size();
+
+        assertThrows(IllegalStateException.class, () -> journaled.inTransaction(tx -> {
+            tx.createTask(new Task("Lost", "Description"));
+            tx.deleteTaskById(task.getId());
+            throw new IllegalStateException("Сбой");
+        }));
+        assertEquals(recordsBefore, Files.readAllLines(FileBackedTaskManager.journalFile(tempFile).toPath()).size(),
+                "Откаченная транзакция не должна попадать в журнал");
+
+        journaled.inTransaction(tx -> {
+            Task created = new Task("Created", "Description");
+            tx.createTask(created);
+            for (int i = 0; i < 5; i++) {
+                tx.updateTask(new Task("Created " + i, "Description", created.getId(), Status.IN_PROGRESS));
+            }
+            tx.deleteTaskById(task.getId());
+        });
+        assertEquals(recordsBefore + 2, Files.readAllLines(FileBackedTaskManager.journalFile(tempFile).toPath()).size(),
+                "Транзакция должна записать только итоговое состояние затронутых id");
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.JOURNAL);
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals("Created 4", loaded.getAllTasks().getFirst().getName());
+        loaded.close();
+    }
+
+    @Test
+    void writeBehindShouldCoalesceRepeatedUpdatesIntoOneRecord() throws IOException {
+        FileBackedTaskManager writeBehind = new FileBackedTaskManager(tempFile, PersistenceMode.WRITE_BEHIND);
+        writeBehind.setWriteBehind(60_000, 10_000);
+        Epic epic = new Epic("Epic", "Description");
+        writeBehind.createEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        writeBehind.createSubtask(subtask);
+
+        for (int i = 0; i < 500; i++) {
+            subtask.setName("Subtask" + i);
+            writeBehind.updateSubtask(subtask);
+        }
+        writeBehind.flush();
+
+        List<String> records = Files.readAllLines(FileBackedTaskManager.journalFile(tempFile).toPath());
+        assertEquals(2, records.size(), "Повторные изменения одного id должны записываться один раз");
+        writeBehind.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.WRITE_BEHIND);
+        assertEquals("Subtask499", loaded.getSubtaskById(subtask.getId()).getName());
+        loaded.close();
+    }
+
+    @Test
+    void writeBehindShouldFlushByDefaultLagAfterFirstWrite() throws Exception {
+        FileBackedTaskManager writeBehind = new FileBackedTaskManager(tempFile, PersistenceMode.WRITE_BEHIND);
+        writeBehind.createTask(new Task("Task", "Description"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writeBehind.getDirtyCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, writeBehind.getDirtyCount(), "Поток сброса должен запускаться при первом изменении");
+        assertEquals(1, Files.readAllLines(FileBackedTaskManager.journalFile(tempFile).toPath()).size());
+        writeBehind.close();
+    }
+
+    @Test
+    void writeBehindShouldFlushWhenDirtySetReachesLimit() throws IOException {
+        FileBackedTaskManager writeBehind = new FileBackedTaskManager(tempFile, PersistenceMode.WRITE_BEHIND);
+        writeBehind.setWriteBehind(60_000, 10);
+
+        for (int i = 0; i < 25; i++) {
+            writeBehind.createTask(new Task("Task" + i, "Description"));
+        }
+
+        assertTrue(writeBehind.getDirtyCount() < 10, "Набор изменений не должен превышать лимит");
+        assertEquals(20, Files.readAllLines(FileBackedTaskManager.journalFile(tempFile).toPath()).size());
+
+        writeBehind.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.WRITE_BEHIND);
+        assertEquals(25, loaded.getAllTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    void loadShouldLinkSubtasksRegardlessOfLineOrder() throws IOException {
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic,duration,startTime\n"
+                + "2,SUBTASK,Subtask,DONE,Description,1,0,\n"
+                + "1,EPIC,Epic,NEW,Description,,0,\n");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertEquals(List.of(2), loaded.getEpicById(1).getSubtasksId(),
+                "Подзадача должна привязываться к эпику, объявленному ниже по файлу");
+    }
+
+    @Test
+    void slottedModeShouldRewriteOnlyChangedRecordInPlace() throws IOException {
+        FileBackedTaskManager slotted = new FileBackedTaskManager(tempFile, PersistenceMode.SLOTTED);
+        Epic epic = new Epic("Epic", "Description");
+        slotted.createEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        slotted.createSubtask(subtask);
+        long slotFileLength = tempFile.length();
+        long textFileLength = SlotRecordFile.textFile(tempFile).length();
+
+        subtask.setStatus(Status.DONE);
+        slotted.updateSubtask(subtask);
+
+        assertEquals(slotFileLength, tempFile.length(), "Обновление должно перезаписывать слот на месте");
+        assertEquals(textFileLength, SlotRecordFile.textFile(tempFile).length(),
+                "Неизменившийся текст не должен дописываться повторно");
+        slotted.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.SLOTTED);
+        assertEquals(Status.DONE, loaded.getSubtaskById(subtask.getId()).getStatus());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus(),
+                "Агрегаты эпика должны сохраняться в его слоте");
+        loaded.close();
+    }
+
+    @Test
+    void slottedModeShouldReuseFreedSlots() throws IOException {
+        FileBackedTaskManager slotted = new FileBackedTaskManager(tempFile, PersistenceMode.SLOTTED);
+        Task first = new Task("First", "Description");
+        slotted.createTask(first);
+        slotted.createTask(new Task("Second", "Description"));
+        long length = tempFile.length();
+
+        slotted.deleteTaskById(first.getId());
+        slotted.createTask(new Task("Third", "Description"));
+
+        assertEquals(length, tempFile.length(), "Освобождённый слот должен использоваться повторно");
+        slotted.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.SLOTTED);
+        assertEquals(2, loaded.getAllTasks().size());
+        assertNull(loaded.getTaskById(first.getId()));
+        loaded.close();
+    }
+
+    @Test
+    void lazyDescriptionsShouldLoadOnDemandAndKeepOnlyRecentInMemory() throws IOException {
+        FileBackedTaskManager slotted = new FileBackedTaskManager(tempFile, PersistenceMode.SLOTTED);
+        for (int i = 0; i < 3; i++) {
+            slotted.createTask(new Task("Task" + i, "Long description " + i));
+        }
+        slotted.close();
+
+        FileBackedTaskManager lazy = FileBackedTaskManager.loadWithLazyDescriptions(tempFile, 2);
+        Task first = lazy.getAllTasks().stream().filter(t -> t.getId() == 1).findFirst().orElseThrow();
+        assertFalse(first.isDescriptionLoaded(), "Описание не должно загружаться при старте");
+
+        assertTrue(lazy.getTaskById(1).isDescriptionLoaded(), "getTaskById должен возвращать полный объект");
+        lazy.getTaskById(2);
+        lazy.getTaskById(3);
+
+        assertFalse(first.isDescriptionLoaded(), "Давно запрошенное описание должно вытесняться из памяти");
+        assertEquals("Long description 0", first.getDescription(), "Описание должно читаться с диска");
+
+        first.setStatus(Status.DONE);
+        lazy.updateTask(first);
+        long textLength = SlotRecordFile.textFile(tempFile).length();
+        lazy.close();
+
+        assertEquals(textLength, SlotRecordFile.textFile(tempFile).length());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, PersistenceMode.SLOTTED);
+        assertEquals("Long description 0", loaded.getTaskById(1).getDescription());
+        loaded.close();
+    }
+
+    @Test
+    void loadShouldRestoreTimelineAndEpicAggregates() {
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 10, 0);
+        Epic epic = new Epic("Epic", "Description");
+        manager.createTask(new Task("Task", "Description", Status.NEW, Duration.ofMinutes(30), start));
+        manager.createEpic(epic);
+        manager.createSubtask(new Subtask("Subtask1", "Description", 0, Status.DONE, epic.getId(),
+                Duration.ofMinutes(20), start.plusHours(1)));
+        manager.createSubtask(new Subtask("Subtask2", "Description", 0, Status.NEW, epic.getId(),
+                Duration.ofMinutes(40), start.plusHours(2)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertThrows(IllegalArgumentException.class, () -> loaded.createTask(
+                new Task("Overlap", "Description", Status.NEW, Duration.ofMinutes(10), start.plusMinutes(10))),
+                "После загрузки проверка пересечений должна видеть сохранённые задачи");
+        assertThrows(IllegalArgumentException.class, () -> loaded.createTask(
+                new Task("Overlap", "Description", Status.NEW, Duration.ofMinutes(10), start.plusHours(2))));
+
+        Epic loadedEpic = loaded.getEpicById(epic.getId());
+        assertEquals(start.plusHours(1), loadedEpic.getStartTime(), "Начало эпика должно пересчитываться");
+        assertEquals(Duration.ofMinutes(60), loadedEpic.getDuration());
+        assertEquals(Status.IN_PROGRESS, loadedEpic.getStatus());
+
+        LoadReport report = loaded.getLoadReport();
+        assertNotNull(report);
+        assertEquals(4, report.getEntityCount());
+    }
 }
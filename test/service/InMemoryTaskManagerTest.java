@@ -1,16 +1,24 @@
 package service;
 
+import exception.NotFoundException;
+import interfaces.TaskListener;
 import interfaces.TaskManager;
 import model.Epic;
 import model.Status;
 import model.Subtask;
 import model.Task;
+import model.TaskEvent;
+import model.TaskType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -250,4 +258,435 @@ public class InMemoryTaskManagerTest {
             taskManager.createTask(task2);
         }, "Задачи без пересечения должны создаваться без ошибок");
     }
-}
\ No newline at end of file
+
+    @Test
+    void findByIdShouldResolveAnyTypeWithoutHistory() {
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        taskManager.createSubtask(subtask);
+
+        assertEquals(subtask, taskManager.findById(subtask.getId()));
+        assertEquals(TaskType.SUBTASK, taskManager.getTypeById(subtask.getId()));
+        assertEquals(TaskType.EPIC, taskManager.getTypeById(epic.getId()));
+        assertNull(taskManager.getTypeById(999));
+        assertTrue(taskManager.getHistory().isEmpty(), "findById не должен попадать в историю");
+    }
+
+    @Test
+    void queryShouldFilterByTypeStatusAndEpic() {
+        Task done = new Task("Done", "Description");
+        done.setStatus(Status.DONE);
+        taskManager.createTask(done);
+        Task fresh = new Task("New", "Description");
+        taskManager.createTask(fresh);
+
+        Subtask first = new Subtask("First", "Description", epic.getId());
+        taskManager.createSubtask(first);
+        Subtask second = new Subtask("Second", "Description", epic.getId());
+        taskManager.createSubtask(second);
+        Epic other = new Epic("Other", "Description");
+        taskManager.createEpic(other);
+        Subtask foreign = new Subtask("Foreign", "Description", other.getId());
+        foreign.setStatus(Status.DONE);
+        taskManager.createSubtask(foreign);
+
+        first.setStatus(Status.DONE);
+        taskManager.updateSubtask(first);
+
+        assertEquals(List.of(done), taskManager.query(TaskType.TASK, Status.DONE, null));
+        assertEquals(List.of(first, foreign), taskManager.query(TaskType.SUBTASK, Status.DONE, null));
+        assertEquals(List.of(first), taskManager.query(null, Status.DONE, epic.getId()));
+        assertEquals(List.of(first, second), taskManager.query(TaskType.SUBTASK, null, epic.getId()));
+        assertEquals(List.of(epic), taskManager.query(TaskType.EPIC, Status.IN_PROGRESS, null),
+                "Статус эпика в индексе должен следовать за подзадачами");
+        assertEquals(List.of(other), taskManager.query(TaskType.EPIC, Status.DONE, null));
+        assertTrue(taskManager.query(TaskType.TASK, null, epic.getId()).isEmpty());
+        assertEquals(7, taskManager.query(null, null, null).size());
+
+        taskManager.deleteSubtaskById(second.getId());
+        assertEquals(List.of(epic, other), taskManager.query(TaskType.EPIC, Status.DONE, null));
+        taskManager.deleteAllTasks();
+        assertTrue(taskManager.query(TaskType.TASK, null, null).isEmpty());
+        assertEquals(List.of(epic, first, other, foreign), taskManager.query(null, Status.DONE, null));
+        assertThrows(NotFoundException.class, () -> taskManager.query(null, null, 999));
+    }
+
+    @Test
+    void searchShouldFollowUpdatesAndDeletes() {
+        Task task = new Task("Подготовить релиз", "Собрать сборку");
+        taskManager.createTask(task);
+        Subtask subtask = new Subtask("Проверить сборку", "Прогнать тесты", epic.getId());
+        taskManager.createSubtask(subtask);
+
+        assertEquals(List.of(subtask, task), taskManager.search("сборк*", 10),
+                "Совпадение в названии должно быть выше совпадения в описании");
+
+        Task renamed = new Task("Выпустить релиз", "Опубликовать", task.getId(), Status.NEW);
+        taskManager.updateTask(renamed);
+        assertEquals(List.of(subtask), taskManager.search("сборку", 10));
+        assertEquals(List.of(renamed), taskManager.search("релиз", 10));
+
+        taskManager.deleteSubtaskById(subtask.getId());
+        assertTrue(taskManager.search("сборку", 10).isEmpty());
+        assertTrue(taskManager.getHistory().isEmpty(), "Поиск не должен попадать в историю");
+    }
+
+    @Test
+    void createAllShouldRejectWholeBatchOnOverlap() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        taskManager.createTask(new Task("Existing", "Description", Status.NEW, Duration.ofMinutes(30), start));
+
+        List<Task> insideBatch = List.of(
+                new Task("First", "Description", Status.NEW, Duration.ofMinutes(30), start.plusHours(1)),
+                new Task("Second", "Description", Status.NEW, Duration.ofMinutes(30), start.plusMinutes(80)));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createAll(insideBatch));
+
+        List<Task> withExisting = List.of(
+                new Task("Free", "Description", Status.NEW, Duration.ofMinutes(30), start.plusHours(2)),
+                new Task("Busy", "Description", Status.NEW, Duration.ofMinutes(30), start.plusMinutes(15)));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createAll(withExisting));
+        assertEquals(1, taskManager.getAllTasks().size(), "Отклонённый пакет не должен применяться частично");
+
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        taskManager.createAll(List.of(withExisting.get(0), subtask));
+        assertEquals(2, taskManager.getAllTasks().size());
+        assertEquals(List.of(subtask), taskManager.getSubtaskByEpicId(epic.getId()));
+        assertEquals(List.of(withExisting.get(0)), taskManager.search("free", 10));
+    }
+
+    @Test
+    void updateAllShouldAllowSwappingTimes() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task first = new Task("First", "Description", Status.NEW, Duration.ofMinutes(30), start);
+        Task second = new Task("Second", "Description", Status.NEW, Duration.ofMinutes(30), start.plusHours(1));
+        taskManager.createAll(List.of(first, second));
+
+        Task movedFirst = new Task("First", "Description", first.getId(), Status.DONE, Duration.ofMinutes(30),
+                second.getStartTime());
+        Task movedSecond = new Task("Second", "Description", second.getId(), Status.NEW, Duration.ofMinutes(30),
+                first.getStartTime());
+        taskManager.updateAll(List.of(movedFirst, movedSecond));
+
+        assertEquals(List.of(movedSecond, movedFirst), new ArrayList<>(((InMemoryTaskManager) taskManager).sortedTaskByTime));
+        assertEquals(List.of(movedFirst), taskManager.query(TaskType.TASK, Status.DONE, null));
+
+        Task clash = new Task("Clash", "Description", first.getId(), Status.NEW, Duration.ofMinutes(30),
+                start.plusMinutes(10));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateAll(List.of(clash)));
+        assertEquals(List.of(movedSecond, movedFirst), new ArrayList<>(((InMemoryTaskManager) taskManager).sortedTaskByTime),
+                "После отклонённого пакета шкала должна остаться прежней");
+    }
+
+    @Test
+    void deleteAllShouldCascadeAndValidateUpFront() {
+        Task task = new Task("Task", "Description");
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        taskManager.createAll(List.of(task, subtask));
+
+        assertThrows(NotFoundException.class, () -> taskManager.deleteAll(List.of(task.getId(), 999)));
+        assertEquals(1, taskManager.getAllTasks().size(), "Пакет с неизвестным id не должен применяться");
+
+        taskManager.deleteAll(List.of(epic.getId(), subtask.getId(), task.getId()));
+        assertTrue(taskManager.getAllTasks().isEmpty());
+        assertTrue(taskManager.getAllEpics().isEmpty());
+        assertTrue(taskManager.getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void transactionShouldRollBackAllChangesOnFailure() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task first = new Task("Первая", "Description", Status.NEW, Duration.ofMinutes(30), start);
+        Task second = new Task("Вторая", "Description", Status.NEW, Duration.ofMinutes(30), start.plusHours(1));
+        Subtask subtask = new Subtask("Подзадача", "Description", epic.getId());
+        subtask.setStatus(Status.DONE);
+        subtask.setDuration(Duration.ofMinutes(15));
+        subtask.setStartTime(start.plusHours(3));
+        taskManager.createAll(List.of(first, second, subtask));
+        InMemoryTaskManager manager = (InMemoryTaskManager) taskManager;
+        List<Task> timeline = new ArrayList<>(manager.sortedTaskByTime);
+
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(tx -> {
+            tx.updateTask(new Task("Первая", "Description", first.getId(), Status.DONE, Duration.ofMinutes(30),
+                    second.getStartTime().plusHours(1)));
+            tx.updateTask(new Task("Вторая", "Description", second.getId(), Status.NEW, Duration.ofMinutes(30), start));
+            tx.createTask(new Task("Новая", "Description"));
+            tx.createSubtask(new Subtask("Ещё подзадача", "Description", epic.getId()));
+            tx.deleteSubtaskById(subtask.getId());
+            tx.deleteTaskById(second.getId());
+            throw new IllegalStateException("Сбой");
+        }));
+
+        assertEquals(List.of(first, second), taskManager.getAllTasks());
+        assertEquals(List.of(subtask), taskManager.getAllSubtasks());
+        assertEquals(List.of(subtask.getId()), epic.getSubtasksId());
+        assertEquals(Status.DONE, epic.getStatus(), "Статус эпика должен вернуться к прежнему");
+        assertEquals(subtask.getEndTime(), epic.getEndTime());
+        assertEquals(timeline, new ArrayList<>(manager.sortedTaskByTime), "Шкала времени должна вернуться к прежней");
+        assertEquals(List.of(first, second), taskManager.query(TaskType.TASK, Status.NEW, null));
+        assertTrue(taskManager.search("новая", 10).isEmpty());
+        assertEquals(List.of(subtask), taskManager.search("подзадача", 10));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createTask(
+                new Task("Пересечение", "Description", Status.NEW, Duration.ofMinutes(30), start.plusMinutes(10))));
+
+        Task next = new Task("Следующая", "Description");
+        taskManager.createTask(next);
+        assertEquals(subtask.getId() + 1, next.getId(), "Счётчик id должен вернуться к прежнему");
+    }
+
+    @Test
+    void transactionShouldApplyAllChangesOnSuccess() {
+        Task task = new Task("Task", "Description");
+        taskManager.createTask(task);
+
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        subtask.setStatus(Status.DONE);
+        taskManager.inTransaction(tx -> {
+            tx.createSubtask(subtask);
+            tx.deleteTaskById(task.getId());
+            tx.inTransaction(nested -> nested.createTask(new Task("Nested", "Description")));
+        });
+
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertEquals("Nested", taskManager.getAllTasks().getFirst().getName());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(tx -> {
+            tx.deleteAllSubtasks();
+            tx.deleteAllEpics();
+            throw new IllegalStateException("Сбой");
+        }));
+        assertEquals(List.of(epic), taskManager.getAllEpics());
+        assertEquals(1, taskManager.getSubtaskByEpicId(epic.getId()).size());
+    }
+
+    @Test
+    void listenerShouldReceiveMutationsWithBeforeAndAfter() {
+        List<TaskEvent> events = new ArrayList<>();
+        TaskListener.Subscription subscription = taskManager.subscribe(events::addAll);
+
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        taskManager.createSubtask(subtask);
+        Subtask done = new Subtask("Subtask", "Description", subtask.getId(), Status.DONE, epic.getId());
+        taskManager.updateSubtask(done);
+        taskManager.deleteEpicById(epic.getId());
+
+        assertEquals(List.of(TaskEvent.Kind.CREATED, TaskEvent.Kind.UPDATED, TaskEvent.Kind.STATUS_CHANGED,
+                TaskEvent.Kind.DELETED, TaskEvent.Kind.DELETED), events.stream().map(TaskEvent::getKind).toList());
+        assertEquals(Status.NEW, events.get(1).getBefore().getStatus());
+        assertEquals(Status.DONE, events.get(1).getAfter().getStatus());
+        assertEquals(epic.getId(), events.get(2).getId());
+        assertEquals(Status.NEW, events.get(2).getBefore().getStatus());
+        assertEquals(Status.DONE, events.get(2).getAfter().getStatus());
+        assertEquals(TaskType.SUBTASK, events.get(3).getType());
+        assertNull(events.get(4).getAfter());
+        assertNotSame(done, events.get(1).getAfter(), "Событие должно содержать копию записи");
+
+        subscription.close();
+        taskManager.createTask(new Task("Task", "Description"));
+        assertEquals(5, events.size(), "После отписки события не должны приходить");
+    }
+
+    @Test
+    void transactionEventsShouldArriveInOneBatchOnlyOnCommit() {
+        List<List<TaskEvent>> batches = new ArrayList<>();
+        taskManager.subscribe(batches::add);
+
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(tx -> {
+            tx.createSubtask(new Subtask("Subtask", "Description", epic.getId()));
+            throw new IllegalStateException("Сбой");
+        }));
+        assertTrue(batches.isEmpty(), "События откаченной транзакции не должны рассылаться");
+
+        taskManager.inTransaction(tx -> {
+            tx.createTask(new Task("First", "Description"));
+            tx.createTask(new Task("Second", "Description"));
+        });
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.getFirst().size());
+    }
+
+    @Test
+    void scheduleEarliestShouldUseFirstFreeSlotAndMoveExistingTasks() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task busy = new Task("Busy", "Description", Status.NEW, Duration.ofMinutes(60), start);
+        Task later = new Task("Later", "Description", Status.NEW, Duration.ofMinutes(30), start.plusMinutes(90));
+        taskManager.createAll(List.of(busy, later));
+
+        Task task = new Task("Task", "Description", Status.NEW, Duration.ofMinutes(20), null);
+        taskManager.scheduleEarliest(task, start, null);
+        assertEquals(start.plusMinutes(61), task.getStartTime());
+        assertEquals(task, taskManager.getTaskById(task.getId()));
+
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        subtask.setDuration(Duration.ofMinutes(45));
+        taskManager.scheduleEarliest(subtask, start, null);
+        assertEquals(later.getEndTime().plusMinutes(1), subtask.getStartTime(), "Короткие промежутки пропускаются");
+        assertEquals(subtask.getStartTime(), epic.getStartTime());
+
+        Task moved = new Task("Busy", "Description", busy.getId(), Status.NEW, Duration.ofMinutes(60), null);
+        taskManager.scheduleEarliest(moved, start.minusHours(1), null);
+        assertEquals(start.minusHours(1), moved.getStartTime(), "Прежнее время переносимой задачи свободно");
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.scheduleEarliest(
+                new Task("Long", "Description", Status.NEW, Duration.ofHours(3), null), start, start.plusHours(2)));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.scheduleEarliest(new Epic("Epic", "Description"),
+                start, null));
+    }
+
+    @Test
+    void scheduleAllShouldPackInOrderOrChangeNothing() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        taskManager.createTask(new Task("Busy", "Description", Status.NEW, Duration.ofMinutes(30), start.plusMinutes(40)));
+
+        List<Task> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            items.add(new Task("Task" + i, "Description", Status.NEW, Duration.ofMinutes(15), null));
+        }
+        assertThrows(IllegalArgumentException.class, () -> taskManager.scheduleAll(items, start, start.plusMinutes(90)));
+        assertEquals(1, taskManager.getAllTasks().size(), "Неразмещённый пакет не должен применяться частично");
+        assertTrue(items.stream().allMatch(item -> item.getStartTime() == null));
+
+        taskManager.scheduleAll(items, start, null);
+        assertEquals(List.of(start, start.plusMinutes(16), start.plusMinutes(71), start.plusMinutes(87)),
+                items.stream().map(Task::getStartTime).toList());
+        assertEquals(5, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void failedScheduleShouldLeaveStoredTasksUntouched() {
+        InMemoryTaskManager manager = new InMemoryTaskManager() {
+            @Override
+            public void updateAll(List<? extends Task> items) {
+                super.updateAll(items);
+                throw new IllegalStateException("Сбой сохранения");
+            }
+        };
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        manager.createTask(new Task("Task", "Description", Status.NEW, Duration.ofMinutes(30), start));
+        Task stored = manager.getTaskById(1);
+        Task created = new Task("Created", "Description", Status.NEW, Duration.ofMinutes(30), null);
+
+        assertThrows(IllegalStateException.class,
+                () -> manager.scheduleAll(List.of(created, stored), start.minusHours(2), null));
+
+        assertEquals(start, stored.getStartTime(), "Хранимая задача не должна менять время до фиксации");
+        assertEquals(start, manager.getTaskById(1).getStartTime());
+        assertNull(created.getStartTime());
+        assertEquals(1, manager.getAllTasks().size());
+        assertThrows(IllegalArgumentException.class, () -> manager.createTask(
+                new Task("Overlap", "Description", Status.NEW, Duration.ofMinutes(10), start.plusMinutes(5))),
+                "Индекс времени должен остаться согласованным с хранилищем");
+    }
+
+    @Test
+    void overlapChecksShouldMatchLinearScan() {
+        assertMatchesLinearScan(new Random(42), 1);
+    }
+
+    @Test
+    void timelineGridShouldMatchLinearScan() {
+        InMemoryTaskManager gridManager = new InMemoryTaskManager();
+        gridManager.enableTimelineGrid(LocalDateTime.of(2025, 1, 1, 0, 0), Duration.ofMinutes(15),
+                Duration.ofDays(3));
+        taskManager = gridManager;
+
+        assertMatchesLinearScan(new Random(7), 15);
+        assertTrue(gridManager.timelineGrid.reservedCount() > 0, "Выровненные задачи должны попадать в сетку");
+        assertTrue(gridManager.timeline.size() > 0, "Задачи вне сетки должны проверяться точно");
+    }
+
+    @Test
+    void epicCountersShouldMatchFullRecompute() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Random random = new Random(3);
+        List<Epic> epics = new ArrayList<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Epic created = new Epic("Epic" + i, "Description");
+            manager.createEpic(created);
+            epics.add(created);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            int operation = random.nextInt(10);
+            Status status = Status.values()[random.nextInt(3)];
+
+            if (operation < 4 || subtasks.isEmpty()) {
+                Subtask subtask = new Subtask("Subtask", "Description", 0, status,
+                        epics.get(random.nextInt(epics.size())).getId(), Duration.ofMinutes(30),
+                        random.nextInt(4) == 0 ? null : base.plusHours(i));
+                manager.createSubtask(subtask);
+                subtasks.add(subtask);
+            } else if (operation < 8) {
+                Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                subtask.setStatus(status);
+                subtask.setDuration(Duration.ofMinutes(random.nextInt(50)));
+                manager.updateSubtask(subtask);
+            } else if (operation < 9) {
+                manager.deleteSubtaskById(subtasks.remove(random.nextInt(subtasks.size())).getId());
+            } else {
+                Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                manager.updateSubtask(new Subtask("Copy", "Description", subtask.getId(), status,
+                        subtask.getEpicId(), Duration.ofMinutes(20), subtask.getStartTime()));
+                subtasks.set(subtasks.indexOf(subtask), manager.getSubtaskById(subtask.getId()));
+            }
+
+            manager.verifyEpicCounters();
+        }
+
+        manager.deleteAllSubtasks();
+        manager.verifyEpicCounters();
+        assertEquals(0, epics.getFirst().getStatusCount(Status.NEW));
+    }
+
+    // step — шаг, с которым в основном выбираются начало и длительность; каждая пятая задача не выровнена
+    private void assertMatchesLinearScan(Random random, int step) {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Map<Integer, Task> accepted = new HashMap<>();
+
+        for (int i = 0; i < 3000; i++) {
+            int unit = random.nextInt(5) == 0 ? 1 : step;
+            LocalDateTime start = base.plusMinutes((long) random.nextInt(5 * 24 * 60 / unit) * unit);
+            Duration duration = Duration.ofMinutes((long) random.nextInt(90 / unit) * unit);
+            List<Integer> ids = new ArrayList<>(accepted.keySet());
+            int operation = random.nextInt(10);
+
+            if (operation < 2 && !ids.isEmpty()) {
+                int id = ids.get(random.nextInt(ids.size()));
+                taskManager.deleteTaskById(id);
+                accepted.remove(id);
+            } else if (operation < 5 && !ids.isEmpty()) {
+                int id = ids.get(random.nextInt(ids.size()));
+                Task update = new Task("Task", "Description", id, Status.NEW, duration, start);
+                boolean expected = linearOverlap(accepted, update);
+
+                assertEquals(expected, rejects(() -> taskManager.updateTask(update)),
+                        "Решение при обновлении должно совпадать с линейным поиском");
+                if (!expected) accepted.put(id, update);
+            } else {
+                Task task = new Task("Task", "Description", Status.NEW, duration, start);
+                boolean expected = linearOverlap(accepted, task);
+
+                assertEquals(expected, rejects(() -> taskManager.createTask(task)),
+                        "Решение при создании должно совпадать с линейным поиском");
+                if (!expected) accepted.put(task.getId(), new Task("Task", "Description", task.getId(),
+                        Status.NEW, duration, start));
+            }
+        }
+    }
+
+    private static boolean linearOverlap(Map<Integer, Task> accepted, Task task) {
+        return accepted.values().stream()
+                .filter(t -> t.getId() != task.getId())
+                .anyMatch(t -> !(task.getEndTime().isBefore(t.getStartTime())
+                        || task.getStartTime().isAfter(t.getEndTime())));
+    }
+
+    private static boolean rejects(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+}
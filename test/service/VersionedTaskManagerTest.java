@@ -0,0 +1,105 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionedTaskManagerTest {
+    private VersionedTaskManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new VersionedTaskManager();
+    }
+
+    @Test
+    void listenerShouldSeePublishedVersion() {
+        List<String> seen = new ArrayList<>();
+        manager.subscribe(events -> events.forEach(event -> seen.add(event.getKind() + ":"
+                + manager.getAllTasks().size() + ":" + (manager.findById(event.getId()) != null))));
+
+        Task task = new Task("Task", "Description");
+        manager.createTask(task);
+        manager.deleteTaskById(task.getId());
+
+        assertEquals(List.of("CREATED:1:true", "DELETED:0:false"), seen,
+                "Подписчик должен получать событие после публикации версии");
+    }
+
+    @Test
+    void readersShouldKeepTheVersionTheyTook() {
+        Task task = new Task("Task", "Description");
+        manager.createTask(task);
+        List<Task> before = manager.getAllTasks();
+
+        task.setStatus(Status.DONE);
+        manager.updateTask(task);
+        manager.createTask(new Task("Task2", "Description"));
+
+        assertEquals(1, before.size(), "Полученная версия не должна видеть новые задачи");
+        assertEquals(Status.NEW, before.getFirst().getStatus(), "Полученная версия не должна видеть изменения");
+        assertEquals(2, manager.getAllTasks().size());
+        assertEquals(Status.DONE, manager.getAllTasks().getFirst().getStatus());
+    }
+
+    @Test
+    void snapshotShouldIncludeHistoryFromTheSameVersion() {
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+        manager.createSubtask(subtask);
+        manager.getSubtaskById(subtask.getId());
+
+        TaskSnapshot snapshot = manager.snapshot();
+        subtask.setStatus(Status.DONE);
+        manager.updateSubtask(subtask);
+
+        assertEquals(1, snapshot.getHistory().size());
+        assertEquals(Status.NEW, snapshot.getHistory().getFirst().getStatus());
+        assertEquals(Status.NEW, snapshot.getEpics().getFirst().getStatus());
+        assertEquals(Status.DONE, manager.getAllEpics().getFirst().getStatus());
+    }
+
+    @Test
+    void concurrentReadersShouldNeverSeeDanglingSubtasks() throws InterruptedException {
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    for (Subtask subtask : manager.getSubtaskByEpicId(epic.getId())) {
+                        assertNotNull(subtask, "Эпик версии должен ссылаться только на подзадачи этой версии");
+                    }
+                    manager.getAllEpics().forEach(Task::getStatus);
+                }
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 2000; i++) {
+            Subtask subtask = new Subtask("Subtask", "Description", epic.getId());
+            manager.createSubtask(subtask);
+            if (i % 2 == 0) manager.deleteSubtaskById(subtask.getId());
+        }
+        running.set(false);
+        reader.join();
+
+        assertNull(error.get(), "Читатель не должен видеть несогласованных версий");
+        assertEquals(1000, manager.getSubtaskByEpicId(epic.getId()).size());
+    }
+}
@@ -0,0 +1,79 @@
+package storage;
+
+import model.Status;
+import model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Сравнение с прежней реализацией на String.format/String.split: java storage.CsvTaskCodecBenchmark
+public class CsvTaskCodecBenchmark {
+    private static final int RECORDS = 200_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        List<Task> tasks = new ArrayList<>(RECORDS);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 1; i <= RECORDS; i++) {
+            tasks.add(new Task("Task " + i, "Description of task " + i, i, Status.values()[i % 3],
+                    Duration.ofMinutes(i % 120), start.plusMinutes(i * 15L)));
+        }
+
+        CsvTaskCodec codec = new CsvTaskCodec();
+        StringBuilder line = new StringBuilder(256);
+        List<String> lines = new ArrayList<>(RECORDS);
+        for (Task task : tasks) {
+            lines.add(codec.encode(task));
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long legacyWrite = time(() -> {
+                for (Task task : tasks) {
+                    blackhole += legacyFormat(task).length();
+                }
+            });
+            long codecWrite = time(() -> {
+                for (Task task : tasks) {
+                    line.setLength(0);
+                    codec.encode(task, line);
+                    blackhole += line.length();
+                }
+            });
+            long legacyRead = time(() -> {
+                for (String value : lines) {
+                    blackhole += legacyParse(value).getId();
+                }
+            });
+            long codecRead = time(() -> {
+                for (String value : lines) {
+                    blackhole += codec.decode(value).getId();
+                }
+            });
+
+            System.out.printf("round %d: write %d ms -> %d ms, read %d ms -> %d ms%n",
+                    round, legacyWrite, codecWrite, legacyRead, codecRead);
+        }
+        System.out.println(blackhole);
+    }
+
+    private static long blackhole;
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static String legacyFormat(Task task) {
+        return String.format("%d,%s,%s,%s,%s,%s,%s,%s", task.getId(), task.getType(), task.getName(),
+                task.getStatus(), task.getDescription(), "", task.getDuration().toMinutes(), task.getStartTime());
+    }
+
+    private static Task legacyParse(String value) {
+        String[] fields = value.split(",");
+        return new Task(fields[2], fields[4], Integer.parseInt(fields[0]), Status.valueOf(fields[3]),
+                Duration.ofMinutes(Long.parseLong(fields[6])), LocalDateTime.parse(fields[7]));
+    }
+}
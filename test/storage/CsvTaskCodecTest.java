@@ -0,0 +1,70 @@
+package storage;
+
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTaskCodecTest {
+    private final CsvTaskCodec codec = new CsvTaskCodec();
+
+    @Test
+    void shouldRoundTripFieldsWithCommasQuotesAndLineBreaks() {
+        Task task = new Task("Купить хлеб, молоко", "Сказать \"спасибо\"\nи уйти \\ домой", 7, Status.DONE,
+                Duration.ofMinutes(90), LocalDateTime.of(2025, 1, 2, 3, 4, 5, 600_000_000));
+
+        String line = codec.encode(task);
+        Task decoded = codec.decode(line);
+
+        assertFalse(line.contains("\n"), "Запись должна занимать одну строку");
+        assertEquals(task.getName(), decoded.getName());
+        assertEquals(task.getDescription(), decoded.getDescription());
+        assertEquals(Status.DONE, decoded.getStatus());
+        assertEquals(Duration.ofMinutes(90), decoded.getDuration());
+        assertEquals(task.getStartTime(), decoded.getStartTime());
+    }
+
+    @Test
+    void shouldDistinguishNullFromNullString() {
+        Task task = new Task("null", null, 1, Status.NEW, Duration.ZERO, null);
+
+        Task decoded = codec.decode(codec.encode(task));
+
+        assertEquals("null", decoded.getName());
+        assertNull(decoded.getDescription());
+        assertNull(decoded.getStartTime());
+    }
+
+    @Test
+    void shouldReadLinesWrittenByPreviousFormat() {
+        Subtask subtask = (Subtask) codec.decode("3,SUBTASK,Sub,IN_PROGRESS,Desc,2,15,2025-11-10T10:00");
+        Epic epic = (Epic) codec.decode("2,EPIC,Epic,DONE,Desc,,0,");
+
+        assertEquals(2, subtask.getEpicId());
+        assertEquals(Status.IN_PROGRESS, subtask.getStatus());
+        assertEquals(LocalDateTime.of(2025, 11, 10, 10, 0), subtask.getStartTime());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(TaskType.EPIC, epic.getType());
+    }
+
+    @Test
+    void readAllShouldSkipHeaderAndStopAtEmptyLine() throws Exception {
+        String content = CsvTaskCodec.HEADER + "\r\n"
+                + "1,TASK,A,NEW,D,,0,\r\n"
+                + "2,TASK,B,NEW,D,,0,\n"
+                + "\n"
+                + "3,TASK,C,NEW,D,,0,\n";
+        List<Task> result = new ArrayList<>();
+
+        codec.readAll(new StringReader(content), result::add);
+
+        assertEquals(2, result.size());
+        assertEquals("B", result.get(1).getName());
+    }
+}
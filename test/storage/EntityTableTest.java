@@ -0,0 +1,87 @@
+package storage;
+
+import model.Epic;
+import model.Status;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityTableTest {
+
+    @Test
+    void viewsShouldSeparateTypesAndIterateById() {
+        EntityTable table = new EntityTable();
+        EntityTable.View<Task> tasks = table.view(TaskType.TASK);
+        EntityTable.View<Epic> epics = table.view(TaskType.EPIC);
+        EntityTable.View<Subtask> subtasks = table.view(TaskType.SUBTASK);
+
+        epics.put(1, new Epic("Epic", "Description", 1));
+        tasks.put(3, new Task("Task", "Description"));
+        subtasks.put(2, new Subtask("Subtask", "Description", 1));
+        tasks.put(5000, new Task("Far", "Description"));
+
+        assertEquals(TaskType.SUBTASK, table.typeOf(2));
+        assertNull(tasks.get(2), "Представление не должно видеть записи другого типа");
+        assertNull(tasks.remove(1), "Удаление через чужое представление ничего не делает");
+        assertEquals(2, tasks.size());
+        assertEquals(List.of(3, 5000), new ArrayList<>(tasks.keySet()));
+        assertThrows(IllegalArgumentException.class, () -> tasks.put(1, new Task("Clash", "Description")));
+    }
+
+    @Test
+    void valuesAfterShouldWalkPagesInIdOrder() {
+        EntityTable table = new EntityTable();
+        EntityTable.View<Task> tasks = table.view(TaskType.TASK);
+        EntityTable.View<Epic> epics = table.view(TaskType.EPIC);
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            if (id % 7 == 0) {
+                epics.put(id, new Epic("Epic", "Description", id));
+            } else if (id % 3 != 0 || id > 3000) {
+                tasks.put(id, new Task("Task", "Description", id, Status.NEW));
+                expected.add(id);
+            }
+        }
+
+        List<Integer> walked = new ArrayList<>();
+        int after = 0;
+        List<Task> page;
+        while (!(page = tasks.valuesAfter(after, 333)).isEmpty()) {
+            page.forEach(task -> walked.add(task.getId()));
+            after = page.getLast().getId();
+        }
+
+        assertEquals(expected, walked, "Постраничный обход должен совпадать с полным и не пропускать записи");
+        assertTrue(tasks.valuesAfter(5000, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> tasks.valuesAfter(0, 0));
+    }
+
+    @Test
+    void emptyPagesShouldBeReleasedWithoutRenumbering() {
+        EntityTable table = new EntityTable();
+        EntityTable.View<Task> tasks = table.view(TaskType.TASK);
+        for (int id = 1; id <= 100_000; id++) {
+            tasks.put(id, new Task("Task", null, id, null));
+        }
+        int allocated = table.getAllocatedPages();
+
+        for (int id = 1; id <= 100_000; id++) {
+            if (id % 1000 != 0) tasks.remove(id);
+        }
+        for (int id = 1; id <= 50_000; id++) {
+            tasks.remove(id);
+        }
+
+        assertEquals(50, tasks.size());
+        assertTrue(table.getAllocatedPages() <= 50 && table.getAllocatedPages() < allocated,
+                "Страницы без живых записей должны освобождаться");
+        assertEquals(51_000, tasks.get(51_000).getId(), "Оставшиеся записи сохраняют свои id");
+        assertNull(table.typeOf(1));
+    }
+}
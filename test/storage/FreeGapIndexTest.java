@@ -0,0 +1,93 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreeGapIndexTest {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private static LocalDateTime at(int minutes) {
+        return ORIGIN.plusMinutes(minutes);
+    }
+
+    @Test
+    void shouldFindFirstGapThatFitsAfterNotBefore() {
+        FreeGapIndex index = new FreeGapIndex();
+        index.add(1, at(0), at(60));
+        index.add(2, at(90), at(120));
+        index.add(3, at(200), at(230));
+
+        assertEquals(at(61), index.findEarliest(Duration.ofMinutes(20), at(0), null));
+        assertEquals(at(121), index.findEarliest(Duration.ofMinutes(40), at(0), null),
+                "Промежуток короче задачи должен пропускаться");
+        assertEquals(at(231), index.findEarliest(Duration.ofMinutes(90), at(0), null));
+        assertEquals(at(150), index.findEarliest(Duration.ofMinutes(20), at(150), null));
+        assertNull(index.findEarliest(Duration.ofMinutes(90), at(0), at(300)), "Слот должен укладываться в окно");
+        assertEquals(at(61), index.findEarliest(Duration.ZERO, at(30).plusSeconds(1), null));
+    }
+
+    @Test
+    void removingFromMergedBlockShouldSplitIt() {
+        FreeGapIndex index = new FreeGapIndex();
+        index.add(1, at(0), at(60));
+        index.add(2, at(50), at(100));
+        index.add(3, at(100), at(120));
+        assertEquals(1, index.blockCount(), "Пересекающиеся и касающиеся интервалы должны сливаться");
+
+        index.remove(2);
+        assertEquals(2, index.blockCount());
+        assertEquals(at(61), index.findEarliest(Duration.ofMinutes(30), at(0), null));
+
+        index.add(1, at(130), at(140));
+        assertEquals(at(0), index.findEarliest(Duration.ofMinutes(30), at(0), null), "Повторное добавление id переносит интервал");
+    }
+
+    @Test
+    void shouldMatchLinearScan() {
+        Random random = new Random(7);
+        FreeGapIndex index = new FreeGapIndex();
+        Map<Integer, int[]> intervals = new HashMap<>();
+
+        for (int step = 0; step < 3000; step++) {
+            int id = random.nextInt(60);
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                intervals.remove(id);
+            } else {
+                int start = random.nextInt(2000);
+                int end = start + random.nextInt(120);
+                index.add(id, at(start), at(end));
+                intervals.put(id, new int[]{start, end});
+            }
+
+            int duration = random.nextInt(90);
+            int notBefore = random.nextInt(2200);
+            Integer notAfter = random.nextBoolean() ? notBefore + random.nextInt(600) : null;
+            LocalDateTime found = index.findEarliest(Duration.ofMinutes(duration), at(notBefore),
+                    notAfter != null ? at(notAfter) : null);
+            assertEquals(linearScan(intervals, duration, notBefore, notAfter), found, "Шаг " + step);
+        }
+    }
+
+    private static LocalDateTime linearScan(Map<Integer, int[]> intervals, int duration, int notBefore, Integer notAfter) {
+        for (int start = notBefore; notAfter == null || start + duration <= notAfter; start++) {
+            boolean free = true;
+            for (int[] interval : intervals.values()) {
+                if (start <= interval[1] && interval[0] <= start + duration) {
+                    free = false;
+                    break;
+                }
+            }
+            if (free) return at(start);
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package storage;
+
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Сравнение занимаемой памяти с упаковывающими коллекциями: java -Xmx2g storage.IntCollectionsFootprint
+// Объекты задач общие для обоих вариантов, поэтому разница — это накладные расходы самих коллекций
+public class IntCollectionsFootprint {
+    private static final int TASKS = 1_000_000;
+
+    private static Object keep;
+
+    public static void main(String[] args) {
+        Task[] tasks = new Task[TASKS];
+        for (int i = 0; i < TASKS; i++) {
+            tasks[i] = new Task("Task", null, i + 1, null);
+        }
+
+        report("HashMap<Integer, Task>", () -> {
+            Map<Integer, Task> map = new HashMap<>();
+            for (Task task : tasks) {
+                map.put(task.getId(), task);
+            }
+            return map;
+        });
+        report("IntObjectMap<Task>", () -> {
+            IntObjectMap<Task> map = new IntObjectMap<>();
+            for (Task task : tasks) {
+                map.put(task.getId(), task);
+            }
+            return map;
+        });
+        report("ArrayList<Integer>", () -> {
+            List<Integer> list = new ArrayList<>();
+            for (int i = 1; i <= TASKS; i++) {
+                list.add(i + 1000);
+            }
+            return list;
+        });
+        report("IntIdList", () -> {
+            IntIdList list = new IntIdList();
+            for (int i = 1; i <= TASKS; i++) {
+                list.add(i + 1000);
+            }
+            return list;
+        });
+    }
+
+    private static void report(String name, Supplier<Object> build) {
+        long before = usedMemory();
+        keep = build.get();
+        long after = usedMemory();
+
+        System.out.printf("%-24s %6.1f MB%n", name, (after - before) / 1024.0 / 1024.0);
+        keep = null;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,59 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntIdListTest {
+
+    @Test
+    void shouldKeepInsertionOrderAndRemoveById() {
+        Random random = new Random(9);
+        Set<Integer> expected = new LinkedHashSet<>();
+        IntIdList list = new IntIdList();
+
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), list.remove((Integer) id));
+            } else {
+                assertEquals(expected.add(id), list.add(id));
+            }
+
+            assertEquals(expected.size(), list.size());
+        }
+
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(list), "Порядок добавления должен сохраняться");
+        assertEquals(new ArrayList<>(expected).getFirst(), list.get(0));
+        assertTrue(list.contains(list.get(list.size() - 1)));
+    }
+
+    @Test
+    void getShouldNotDisturbLiveIterator() {
+        IntIdList list = new IntIdList();
+        for (int id = 0; id < 100; id++) {
+            list.add(id);
+        }
+        for (int id = 0; id < 100; id += 3) {
+            list.removeId(id);
+        }
+
+        Iterator<Integer> iterator = list.iterator();
+        List<Integer> iterated = new ArrayList<>();
+        for (int i = 0; iterator.hasNext(); i++) {
+            int id = iterator.next();
+            assertEquals(id, (int) list.get(i), "get вернул не тот элемент при удалённых позициях");
+            iterated.add(id);
+        }
+
+        assertEquals(new ArrayList<>(list), iterated);
+        assertEquals(66, iterated.size());
+    }
+}
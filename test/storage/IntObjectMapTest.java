@@ -0,0 +1,60 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntObjectMapTest {
+
+    @Test
+    void shouldMatchHashMapUnderRandomOperations() {
+        Random random = new Random(5);
+        Map<Integer, String> expected = new HashMap<>();
+        IntObjectMap<String> map = new IntObjectMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            // Ключи с одинаковыми младшими битами дают длинные цепочки и проверяют сдвиг при удалении
+            int key = random.nextInt(200) * (random.nextBoolean() ? 1 : 64);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            }
+
+            assertEquals(expected.size(), map.size());
+        }
+
+        assertEquals(expected, map, "Содержимое должно совпадать с HashMap");
+        for (Integer key : expected.keySet()) {
+            assertTrue(map.containsKey((int) key));
+        }
+    }
+
+    @Test
+    void removingSequentialIdsShouldStayFast() {
+        int count = 200_000;
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int id = 1; id <= count; id++) {
+            map.put(id, "task" + id);
+        }
+
+        long started = System.nanoTime();
+        for (int id = 1; id <= count; id += 2) {
+            assertEquals("task" + id, map.remove(id));
+        }
+        for (int id = count; id >= 1; id--) {
+            map.put(id, "again" + id);
+        }
+        for (int id = 1; id <= count; id++) {
+            assertNotNull(map.remove(id));
+        }
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(map.isEmpty());
+        assertTrue(millis < 2_000, "Удаление последовательных id не должно быть квадратичным: " + millis + " мс");
+    }
+}
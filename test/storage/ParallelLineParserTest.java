@@ -0,0 +1,72 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelLineParserTest {
+
+    @Test
+    void shouldParseAllLinesAcrossChunksInFileOrder() throws IOException {
+        File file = File.createTempFile("lines", ".csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("header");
+        for (int i = 0; i < 10_000; i++) {
+            lines.add(i + ",Задача " + i);
+        }
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+        ParallelLineParser<Integer> parser = new ParallelLineParser<>((text, start, end) -> {
+            String line = text.subSequence(start, end).toString();
+            return Integer.parseInt(line.substring(0, line.indexOf(',')));
+        }, StandardCharsets.UTF_8, 1000);
+        List<Integer> ids = parser.parse(file);
+
+        assertEquals(10_000, ids.size(), "Строки на границах блоков не должны теряться или дублироваться");
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i, (int) ids.get(i));
+        }
+    }
+
+    @Test
+    void shouldStopAtFirstBlankLineLikeSequentialRead() throws IOException {
+        File file = File.createTempFile("lines", ".csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("header");
+        for (int i = 0; i < 1000; i++) {
+            lines.add(i + ",Задача " + i);
+        }
+        lines.add("");
+        for (int i = 0; i < 1000; i++) {
+            lines.add("не,разбирается");
+        }
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+        ParallelLineParser<Integer> parser = new ParallelLineParser<>((text, start, end) -> {
+            String line = text.subSequence(start, end).toString();
+            return Integer.parseInt(line.substring(0, line.indexOf(',')));
+        }, StandardCharsets.UTF_8, 1000);
+        List<Integer> ids = parser.parse(file);
+
+        assertEquals(1000, ids.size(), "Строки после пустой не должны разбираться");
+        assertEquals(999, (int) ids.getLast());
+    }
+
+    @Test
+    void shouldReturnEmptyListForHeaderOnlyFile() throws IOException {
+        File file = File.createTempFile("lines", ".csv");
+        Files.writeString(file.toPath(), "header\n");
+
+        ParallelLineParser<String> parser = new ParallelLineParser<>(
+                (text, start, end) -> text.subSequence(start, end).toString(), StandardCharsets.UTF_8, 1000);
+
+        assertTrue(parser.parse(file).isEmpty());
+    }
+}
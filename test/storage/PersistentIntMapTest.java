@@ -0,0 +1,58 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentIntMapTest {
+
+    @Test
+    void shouldMatchTreeMapAndKeepOldVersions() {
+        Random random = new Random(1);
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        PersistentIntMap<String> map = PersistentIntMap.empty();
+
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(500);
+            PersistentIntMap<String> before = map;
+            List<String> beforeValues = new ArrayList<>(before.values());
+
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, "v" + i);
+                map = map.put(key, "v" + i);
+            }
+
+            assertEquals(beforeValues, new ArrayList<>(before.values()), "Старая версия не должна меняться");
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        List<String> values = map.values();
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(values), "Значения идут в порядке ключей");
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(new ArrayList<>(expected.values()).get(i), values.get(i));
+        }
+    }
+
+    @Test
+    void valuesAfterShouldStartAtFirstGreaterKey() {
+        PersistentIntMap<Integer> map = PersistentIntMap.empty();
+        for (int key = 2; key <= 2000; key += 2) {
+            map = map.put(key, key);
+        }
+
+        assertEquals(List.of(2, 4, 6), map.valuesAfter(Integer.MIN_VALUE, 3));
+        assertEquals(List.of(8, 10), map.valuesAfter(6, 2));
+        assertEquals(List.of(8, 10), map.valuesAfter(7, 2));
+        assertEquals(List.of(2000), map.valuesAfter(1998, 5));
+        assertTrue(map.valuesAfter(2000, 5).isEmpty());
+    }
+}
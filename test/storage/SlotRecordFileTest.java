@@ -0,0 +1,53 @@
+package storage;
+
+import model.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotRecordFileTest {
+
+    @Test
+    void truncatedFileShouldFailInsteadOfHanging() throws IOException {
+        File file = File.createTempFile("slots", ".bin");
+        file.delete();
+        try (SlotRecordFile slots = new SlotRecordFile(file)) {
+            for (int i = 1; i <= 5; i++) {
+                slots.write(new Task("Task" + i, "Description", i, Status.NEW));
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(SlotRecordFile.HEADER_SIZE + SlotRecordFile.SLOT_SIZE * 2 + 10);
+        }
+
+        List<Task> read = new ArrayList<>();
+        try (SlotRecordFile slots = new SlotRecordFile(file)) {
+            assertThrows(IOException.class, () -> slots.readAll(read::add),
+                    "Обрезанный файл слотов должен давать ошибку, а не бесконечное чтение");
+        }
+    }
+
+    @Test
+    void writtenTasksShouldBeReadBack() throws IOException {
+        File file = File.createTempFile("slots", ".bin");
+        file.delete();
+        try (SlotRecordFile slots = new SlotRecordFile(file)) {
+            slots.write(new Task("Task", "Description", 1, Status.NEW));
+        }
+
+        List<Task> read = new ArrayList<>();
+        try (SlotRecordFile slots = new SlotRecordFile(file)) {
+            slots.readAll(read::add);
+        }
+
+        assertEquals(1, read.size());
+        assertEquals("Description", read.getFirst().getDescription());
+    }
+}
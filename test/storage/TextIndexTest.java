@@ -0,0 +1,173 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+
+    @Test
+    void tokenizeShouldIgnoreCaseAndPunctuation() {
+        assertArrayEquals(new String[]{"купить", "елку", "2025"}, TextIndex.tokenize("Купить ёлку, 2025!"));
+        assertEquals(0, TextIndex.tokenize(null).length);
+    }
+
+    @Test
+    void searchShouldSupportPrefixAndPhrase() {
+        TextIndex index = new TextIndex();
+        index.index(1, "Отчёт за квартал", "Собрать квартальный отчёт");
+        index.index(2, "Квартальная премия", "Рассчитать премию");
+        index.index(3, "Ремонт", "Заказать отчёт у подрядчика за квартал");
+
+        assertArrayEquals(new int[]{1, 3}, index.search("отчет квартал", 10));
+        assertArrayEquals(new int[]{2, 1}, index.search("квартальн*", 10));
+        assertArrayEquals(new int[]{3}, index.search("\"у подрядчика\"", 10));
+        assertArrayEquals(new int[]{1}, index.search("\"отчет за\"", 10));
+        assertEquals(0, index.search("\"квартал отчет\"", 10).length, "Фраза должна совпадать по порядку слов");
+        assertArrayEquals(new int[]{1}, index.search("отчет", 1), "Совпадение в названии весомее описания");
+    }
+
+    @Test
+    void updateAndRemoveShouldReplacePostings() {
+        TextIndex index = new TextIndex();
+        index.index(5, "Alpha", "beta");
+        index.index(2, "Beta", null);
+        assertArrayEquals(new int[]{2, 5}, index.search("beta", 10));
+
+        index.index(5, "Gamma", null);
+        assertArrayEquals(new int[]{2}, index.search("beta", 10));
+        assertArrayEquals(new int[]{5}, index.search("gamma", 10));
+
+        index.remove(2);
+        assertEquals(0, index.search("beta", 10).length);
+        assertEquals(1, index.termCount(), "Пустые списки терминов должны удаляться");
+    }
+
+    @Test
+    void blockPostingsShouldMatchSortedSet() {
+        Random random = new Random(3);
+        TextIndex.Postings postings = new TextIndex.Postings();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int id = 0; id < 5000; id += 1 + random.nextInt(3)) {
+            postings.add(id);
+            expected.add(id);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(6000);
+            if (random.nextBoolean()) {
+                postings.remove(id);
+                expected.remove(id);
+            } else {
+                postings.add(id);
+                expected.add(id);
+            }
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), postings.decode());
+        assertTrue(postings.blockCount() >= expected.size() / TextIndex.Postings.BLOCK_SIZE);
+
+        BitSet removed = new BitSet();
+        for (int id = 0; id < 6000; id += 2) {
+            removed.set(id);
+            expected.remove(id);
+        }
+        postings.removeAll(removed);
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), postings.decode());
+    }
+
+    @Test
+    void removeAllShouldDropDocumentsInOnePass() {
+        TextIndex index = new TextIndex();
+        for (int id = 1; id <= 1000; id++) {
+            index.index(id, "Задача " + id, id % 2 == 0 ? "чётная" : "нечётная");
+        }
+
+        List<Integer> even = new ArrayList<>();
+        for (int id = 2; id <= 1000; id += 2) {
+            even.add(id);
+        }
+        index.removeAll(even);
+
+        assertEquals(500, index.size());
+        assertEquals(0, index.search("чётная", 10).length);
+        assertEquals(500, index.search("задача", 1000).length);
+        assertArrayEquals(new int[]{7}, index.search("7", 10));
+    }
+
+    @Test
+    void searchShouldMatchLinearScan() {
+        Random random = new Random(11);
+        String[] words = {"план", "отчет", "релиз", "тест", "ревью", "баг", "деплой", "встреча"};
+        TextIndex index = new TextIndex();
+        List<String> texts = new ArrayList<>();
+
+        for (int id = 0; id < 2000; id++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(5); i >= 0; i--) {
+                text.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            texts.add(text.toString());
+            index.index(id, text.toString(), null);
+        }
+        for (int i = 0; i < 500; i++) {
+            int id = random.nextInt(texts.size());
+            texts.set(id, words[random.nextInt(words.length)]);
+            index.index(id, texts.get(id), null);
+        }
+
+        for (String first : words) {
+            for (String second : words) {
+                int expected = 0;
+                for (String text : texts) {
+                    List<String> tokens = List.of(TextIndex.tokenize(text));
+                    if (tokens.contains(first) && tokens.contains(second)) expected++;
+                }
+                assertEquals(expected, index.search(first + " " + second, Integer.MAX_VALUE).length,
+                        first + " " + second);
+            }
+        }
+    }
+
+    @Test
+    void lazyDescriptionShouldBeReadOnlyWhenSearching() {
+        TextIndex index = new TextIndex();
+        AtomicInteger reads = new AtomicInteger();
+        index.indexLazy(1, "отчёт", () -> {
+            reads.incrementAndGet();
+            return "собрать квартальные цифры";
+        });
+        index.index(2, "квартальные цифры", "без описания");
+
+        assertEquals(0, reads.get(), "Описание прочитано при индексации");
+        assertArrayEquals(new int[]{1}, index.search("отчёт", 10));
+        assertTrue(reads.get() > 0, "Отложенное описание не проиндексировано при первом поиске");
+
+        assertArrayEquals(new int[]{2, 1}, index.search("\"квартальные цифры\"", 10));
+        assertArrayEquals(new int[]{1}, index.search("\"собрать кварт*\"", 10));
+        assertArrayEquals(new int[0], index.search("\"цифры собрать\"", 10));
+    }
+
+    @Test
+    void termsShouldBeReleasedWhenDocumentsChange() {
+        TextIndex index = new TextIndex();
+        index.index(1, "альфа бета", "гамма");
+        index.index(2, "бета", null);
+        assertEquals(3, index.termCount());
+
+        index.index(1, "дельта", null);
+        assertEquals(2, index.termCount());
+        assertArrayEquals(new int[0], index.search("альфа", 10));
+
+        index.removeAll(List.of(1, 2));
+        assertEquals(0, index.termCount());
+        index.index(3, "эпсилон", "эпсилон");
+        assertArrayEquals(new int[]{3}, index.search("эпс*", 10));
+    }
+}
@@ -1,17 +1,27 @@
 package web;
 
+import model.Epic;
+import model.Status;
+import model.Subtask;
 import model.Task;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import service.FileBackedTaskManager;
 import service.InMemoryTaskManager;
+import service.PersistenceMode;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -183,6 +193,235 @@ class HttpTaskServerTasksTest {
         assertTrue(resp.body().contains("\"name\":\"Sub1\""));
     }
 
+    @Test
+    void testFilterTasksByStatus() throws IOException, InterruptedException {
+        Task done = new Task("DoneTask", "desc");
+        done.setStatus(Status.DONE);
+        manager.createTask(done);
+        manager.createTask(new Task("NewTask", "desc"));
+
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/tasks?status=done"))
+                .GET()
+                .build();
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("\"name\":\"DoneTask\""));
+        assertFalse(resp.body().contains("NewTask"));
+
+        HttpRequest bad = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/tasks?status=UNKNOWN"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(bad, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest missingEpic = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/subtasks?epic=999"))
+                .GET()
+                .build();
+        assertEquals(404, client.send(missingEpic, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void testSearch() throws IOException, InterruptedException {
+        manager.createTask(new Task("Купить молоко", "desc"));
+        manager.createTask(new Task("Позвонить", "desc"));
+
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/search?q=%D0%BC%D0%BE%D0%BB%D0%BE%D0%BA*"))
+                .GET()
+                .build();
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("Купить молоко"));
+        assertFalse(resp.body().contains("Позвонить"));
+
+        HttpRequest empty = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/search"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(empty, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void testTasksPagination() throws IOException, InterruptedException {
+        for (int i = 1; i <= 5; i++) {
+            manager.createTask(new Task("Task" + i, "desc"));
+        }
+
+        HttpRequest first = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/tasks?limit=2"))
+                .GET()
+                .build();
+        HttpResponse<String> resp = client.send(first, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("Task1") && resp.body().contains("Task2"));
+        assertFalse(resp.body().contains("Task3"));
+        assertEquals("2", resp.headers().firstValue("X-Next-Cursor").orElse(null));
+
+        HttpRequest last = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/tasks?limit=2&after=4"))
+                .GET()
+                .build();
+        HttpResponse<String> lastResp = client.send(last, HttpResponse.BodyHandlers.ofString());
+        assertTrue(lastResp.body().contains("Task5"));
+        assertTrue(lastResp.headers().firstValue("X-Next-Cursor").isEmpty(), "На последней странице курсора нет");
+
+        HttpRequest bad = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/tasks?limit=0"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(bad, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void testBatchCreateAndDelete() throws IOException, InterruptedException {
+        String json = """
+                [
+                    {"name":"Batch1","description":"desc","status":"NEW"},
+                    {"type":"EPIC","name":"BatchEpic","description":"desc"}
+                ]
+                """;
+        HttpRequest post = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        HttpResponse<String> resp = client.send(post, HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, resp.statusCode());
+        assertEquals("[1,2]", resp.body());
+        assertEquals(1, manager.getAllTasks().size());
+        assertEquals(1, manager.getAllEpics().size());
+
+        HttpRequest delete = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/batch"))
+                .method("DELETE", HttpRequest.BodyPublishers.ofString("[1,2]"))
+                .build();
+        assertEquals(200, client.send(delete, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertTrue(manager.getAllTasks().isEmpty() && manager.getAllEpics().isEmpty());
+
+        HttpRequest bad = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+        assertEquals(400, client.send(bad, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void testSchedule() throws IOException, InterruptedException {
+        manager.createTask(new Task("Busy", "desc", Status.NEW, Duration.ofMinutes(30),
+                LocalDateTime.of(2025, 1, 1, 10, 0)));
+        String json = """
+                [{"name":"Scheduled","description":"desc","status":"NEW","duration":20}]
+                """;
+        HttpRequest post = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/schedule?from=2025-01-01T10:00"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        HttpResponse<String> resp = client.send(post, HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, resp.statusCode());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 31), manager.getAllTasks().get(1).getStartTime());
+
+        HttpRequest full = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/schedule?from=2025-01-01T10:00&to=2025-01-01T10:30"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        assertEquals(406, client.send(full, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest noWindow = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/schedule"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        assertEquals(400, client.send(noWindow, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest epic = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/schedule?from=2025-01-01T10:00"))
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        [{"type":"EPIC","name":"Epic","description":"desc"}]
+                        """))
+                .build();
+        assertEquals(400, client.send(epic, HttpResponse.BodyHandlers.ofString()).statusCode(),
+                "Ошибка в запросе не должна выдаваться за занятое окно");
+    }
+
+    @Test
+    void testConcurrentEpicReadsWhileSubtasksChange() throws Exception {
+        server.stop();
+        manager.createEpic(new Epic("Epic", "desc"));
+        // Длинный список подзадач растягивает сериализацию эпика, и гонка проявляется надёжнее
+        for (int i = 0; i < 20_000; i++) {
+            manager.createSubtask(new Subtask("Sub", "desc", 1));
+        }
+        server = new HttpTaskServer(manager, 4);
+        server.start();
+
+        String subJson = """
+                {"name":"Sub","description":"desc","status":"NEW","epicId":1}
+                """;
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger writerFailures = new AtomicInteger();
+        // Один писатель: id новых подзадач идут подряд после уже созданных
+        Thread writer = new Thread(() -> {
+            try {
+                for (int id = 20_002; running.get(); id++) {
+                    HttpRequest post = HttpRequest.newBuilder()
+                            .uri(URI.create(BASE_URL + "/subtasks"))
+                            .POST(HttpRequest.BodyPublishers.ofString(subJson))
+                            .build();
+                    HttpRequest delete = HttpRequest.newBuilder()
+                            .uri(URI.create(BASE_URL + "/subtasks/" + id))
+                            .DELETE()
+                            .build();
+                    if (client.send(post, HttpResponse.BodyHandlers.ofString()).statusCode() != 201
+                            || client.send(delete, HttpResponse.BodyHandlers.ofString()).statusCode() != 200) {
+                        writerFailures.incrementAndGet();
+                    }
+                }
+            } catch (Exception e) {
+                writerFailures.incrementAndGet();
+            }
+        });
+        writer.start();
+
+        int failedReads = 0;
+        HttpRequest getEpics = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/epics"))
+                .GET()
+                .build();
+        long deadline = System.currentTimeMillis() + 1500;
+        while (System.currentTimeMillis() < deadline) {
+            if (client.send(getEpics, HttpResponse.BodyHandlers.ofString()).statusCode() != 200) failedReads++;
+        }
+        running.set(false);
+        writer.join();
+
+        assertEquals(0, failedReads, "Чтение эпиков не должно ломаться от параллельных изменений подзадач");
+        assertEquals(0, writerFailures.get());
+    }
+
+    @Test
+    void testListShouldIncludeLazyDescriptions() throws IOException, InterruptedException {
+        File file = File.createTempFile("slots", ".bin");
+        FileBackedTaskManager slotted = new FileBackedTaskManager(file, PersistenceMode.SLOTTED);
+        slotted.createTask(new Task("Lazy", "Описание с диска"));
+        slotted.close();
+        FileBackedTaskManager lazy = FileBackedTaskManager.loadWithLazyDescriptions(file, 1);
+        server.stop();
+        server = new HttpTaskServer(lazy);
+        server.start();
+
+        HttpRequest getAll = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/tasks"))
+                .GET()
+                .build();
+        HttpResponse<String> resp = client.send(getAll, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("\"description\":\"Описание с диска\""),
+                "Незагруженное описание должно читаться при сериализации");
+        assertFalse(lazy.getAllTasks().getFirst().isDescriptionLoaded(), "Сериализация не должна держать описание в памяти");
+        lazy.close();
+    }
+
     @Test
     void testGetHistory() throws IOException, InterruptedException {
         HttpRequest getHistory = HttpRequest.newBuilder()